@@ -1,7 +1,19 @@
 package DataSource;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Built up by the parsers and then frozen: after freeze() the lists and modifier sets
+ * of the class, its fields and its methods are read-only and exactly sized, so a frozen
+ * class can be shared between threads once it has been handed over.
+ */
 
 public class ClassData {
 
@@ -11,14 +23,19 @@ public class ClassData {
 	private List<String> interfaces;
 	private List<VariableData> variables;
 	private List<MethodData> methods;
-	private List<AccessModifiers> modifiers;
+	// built by freeze(), see getMethod and getMethodsNamed
+	private Map<String, MethodData> methodsByKey;
+	private Map<String, List<MethodData>> methodsByName;
+	private Set<AccessModifiers> modifiers;
 	private ClassType classType;
+	private boolean headerOnly;
+	private boolean frozen;
 
 	public ClassData(String className) {
 		setClassName(className);
 		this.variables = new LinkedList<>();
 		this.methods = new LinkedList<>();
-		this.modifiers = new LinkedList<>();
+		this.modifiers = EnumSet.noneOf(AccessModifiers.class);
 		this.classType = ClassType.UNKNOWN;
 	}
 
@@ -27,7 +44,7 @@ public class ClassData {
 	}
 
 	public void setName(String name) {
-		this.className = name;
+		this.className = SymbolTable.global().intern(name);
 	}
 
 	public void addFieldVariable(VariableData vd) {
@@ -43,7 +60,7 @@ public class ClassData {
 	}
 
 	public void setClassName(String className) {
-		this.className = className.replace("/", ".");
+		this.className = SymbolTable.global().toClassName(className);
 	}
 
 	public String getSuperClassName() {
@@ -51,7 +68,7 @@ public class ClassData {
 	}
 
 	public void setSuperClassName(String superClassName) {
-		this.superClassName = superClassName.replace("/", ".");
+		this.superClassName = SymbolTable.global().toClassName(superClassName);
 	}
 
 	public List<String> getInterfaces() {
@@ -61,7 +78,7 @@ public class ClassData {
 	public void setInterfaces(List<String> interfaces) {
 		this.interfaces = interfaces;
 		for(int i = 0; i < interfaces.size(); i++) {
-			this.interfaces.set(i, this.interfaces.get(i).replace("/", "."));
+			this.interfaces.set(i, SymbolTable.global().toClassName(this.interfaces.get(i)));
 		}
 	}
 
@@ -77,18 +94,96 @@ public class ClassData {
 		return this.methods;
 	}
 
-	public List<AccessModifiers> getModifiers() {
+	public Set<AccessModifiers> getModifiers() {
 		return this.modifiers;
 	}
 
+	public ClassData freeze() {
+		if(!this.frozen) {
+			for (VariableData vd : this.variables) {
+				vd.freeze();
+			}
+			for (MethodData md : this.methods) {
+				md.freeze();
+			}
+			this.interfaces = this.interfaces == null ? Collections.emptyList() : FrozenLists.freeze(this.interfaces);
+			this.variables = FrozenLists.freeze(this.variables);
+			this.methods = FrozenLists.freeze(this.methods);
+			indexMethods();
+			this.modifiers = Collections.unmodifiableSet(this.modifiers);
+			this.frozen = true;
+		}
+		return this;
+	}
+
+	private void indexMethods() {
+		this.methodsByKey = new HashMap<>(this.methods.size() * 2);
+		this.methodsByName = new HashMap<>(this.methods.size() * 2);
+		for (MethodData md : this.methods) {
+			this.methodsByKey.putIfAbsent(md.getKey(), md);
+			this.methodsByName.computeIfAbsent(md.getName(), name -> new ArrayList<>(1)).add(md);
+		}
+		this.methodsByName.replaceAll((name, named) -> FrozenLists.freeze(named));
+	}
+
+	/**
+	 * A header-only class has its name, supertypes, modifiers and class type, but no fields
+	 * or methods. It stands in for a class that is not linted itself, but that linted classes
+	 * extend or implement.
+	 */
+	public boolean isHeaderOnly() {
+		return this.headerOnly;
+	}
+
+	public void setHeaderOnly(boolean headerOnly) {
+		this.headerOnly = headerOnly;
+	}
+
+	/**
+	 * The parameter count of the first method declared with the given name, or -1 if there is none.
+	 * Overloads are not told apart, see getMethod(String, String).
+	 */
 	public int getMethodParamCount(String methodName) {
-		for (MethodData method: this.methods) {
-			if (method.getName().equals(methodName)) {
-				return method.getParamCount();
+		List<MethodData> named = getMethodsNamed(methodName);
+		return named.isEmpty() ? -1 : named.get(0).getParamCount();
+	}
+
+	/**
+	 * The method declared in this class with the given name and descriptor, or null if there is none.
+	 */
+	public MethodData getMethod(String methodName, String descriptor) {
+		return getMethodByKey(methodName + descriptor);
+	}
+
+	/**
+	 * The method declared in this class with the given key (see MethodData.getKey), or null if there is none.
+	 */
+	public MethodData getMethodByKey(String key) {
+		if(this.frozen) {
+			return this.methodsByKey.get(key);
+		}
+		for (MethodData method : this.methods) {
+			if (method.getKey().equals(key)) {
+				return method;
 			}
 		}
+		return null;
+	}
 
-		return -1;
+	/**
+	 * The methods declared in this class with the given name, in declaration order.
+	 */
+	public List<MethodData> getMethodsNamed(String methodName) {
+		if(this.frozen) {
+			return this.methodsByName.getOrDefault(methodName, Collections.emptyList());
+		}
+		List<MethodData> named = new ArrayList<>();
+		for (MethodData method : this.methods) {
+			if (method.getName().equals(methodName)) {
+				named.add(method);
+			}
+		}
+		return named;
 	}
 
 	public ClassType getClassType() {
@@ -104,7 +199,7 @@ public class ClassData {
 	}
 
 	public void setUserFriendlyClassName(String userFriendlyClassName) {
-		this.userFriendlyClassName = userFriendlyClassName;
+		this.userFriendlyClassName = SymbolTable.global().intern(userFriendlyClassName);
 	}
 
 	public String getShortenedClassName() {
@@ -0,0 +1,312 @@
+package DataSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes and reads the parsed model (ClassData, MethodData, VariableData, InstructionStream)
+ * in a compact binary form. Bump FORMAT_VERSION whenever the layout or the meaning of
+ * any parsed value changes, so that stale data is never read back.
+ */
+public class ClassDataSerializer {
+
+	public static final int FORMAT_VERSION = 6;
+
+	/**
+	 * Each method body is written after its header, prefixed with its length so that
+	 * readClassData(byte[], int) can leave it undecoded.
+	 */
+	public void writeClassData(DataOutputStream out, ClassData classData) throws IOException {
+		writeClassHeader(out, classData);
+
+		out.writeInt(classData.getMethods().size());
+		ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+		DataOutputStream body = new DataOutputStream(bodyBytes);
+		for (MethodData methodData : classData.getMethods()) {
+			writeMethodHeader(out, methodData);
+			bodyBytes.reset();
+			writeMethodBody(body, methodData);
+			out.writeInt(bodyBytes.size());
+			bodyBytes.writeTo(out);
+		}
+	}
+
+	public ClassData readClassData(DataInputStream in) throws IOException {
+		ClassData classData = readClassHeader(in);
+
+		int methodCount = in.readInt();
+		for (int i = 0; i < methodCount; i++) {
+			MethodData methodData = readMethodHeader(in);
+			in.readInt();
+			readMethodBody(in, methodData);
+			classData.addMethod(methodData);
+		}
+
+		return classData;
+	}
+
+	/**
+	 * Reads what writeClassData wrote, starting at offset in data. The method bodies are left
+	 * in data and decoded the first time they are read, see MethodData.setBodyDecoder.
+	 */
+	public ClassData readClassData(byte[] data, int offset) throws IOException {
+		ByteArrayInputStream bytes = new ByteArrayInputStream(data, offset, data.length - offset);
+		DataInputStream in = new DataInputStream(bytes);
+		ClassData classData = readClassHeader(in);
+
+		int methodCount = in.readInt();
+		for (int i = 0; i < methodCount; i++) {
+			MethodData methodData = readMethodHeader(in);
+			int length = in.readInt();
+			int bodyOffset = data.length - bytes.available();
+			if (in.skipBytes(length) != length) {
+				throw new IOException("Truncated method body of " + methodData.getName());
+			}
+			methodData.setBodyDecoder(new BufferedBodyDecoder(data, bodyOffset, length));
+			classData.addMethod(methodData);
+		}
+
+		return classData;
+	}
+
+	/**
+	 * Writes everything about a class except its methods.
+	 */
+	void writeClassHeader(DataOutputStream out, ClassData classData) throws IOException {
+		writeString(out, classData.getUserFriendlyClassName());
+		writeString(out, classData.getSuperClassName());
+		writeStringList(out, classData.getInterfaces());
+		writeModifiers(out, classData.getModifiers());
+		out.writeByte(classData.getClassType().ordinal());
+
+		out.writeInt(classData.getFieldVariables().size());
+		for (VariableData variableData : classData.getFieldVariables()) {
+			writeVariableData(out, variableData);
+		}
+	}
+
+	ClassData readClassHeader(DataInputStream in) throws IOException {
+		String name = readString(in);
+		ClassData classData = new ClassData(name);
+		classData.setUserFriendlyClassName(name);
+		String superClassName = readString(in);
+		if (superClassName != null) {
+			classData.setSuperClassName(superClassName);
+		}
+		classData.setInterfaces(readStringList(in));
+		for (AccessModifiers am : readModifiers(in)) {
+			classData.addModifier(am);
+		}
+		classData.setClassType(ClassType.values()[in.readByte()]);
+
+		int fieldCount = in.readInt();
+		for (int i = 0; i < fieldCount; i++) {
+			classData.addFieldVariable(readVariableData(in));
+		}
+
+		return classData;
+	}
+
+	private void writeMethodData(DataOutputStream out, MethodData methodData) throws IOException {
+		writeMethodHeader(out, methodData);
+		writeMethodBody(out, methodData);
+	}
+
+	private MethodData readMethodData(DataInputStream in) throws IOException {
+		MethodData methodData = readMethodHeader(in);
+		readMethodBody(in, methodData);
+		return methodData;
+	}
+
+	void writeMethodHeader(DataOutputStream out, MethodData methodData) throws IOException {
+		writeString(out, methodData.getName());
+		writeString(out, methodData.getDescriptor());
+		writeString(out, methodData.getReturnType());
+		writeStringList(out, methodData.getParams());
+		writeModifiers(out, methodData.getModifiers());
+		out.writeByte(methodData.getMethodType().ordinal());
+		writeString(out, methodData.getSignatureAttribute());
+	}
+
+	MethodData readMethodHeader(DataInputStream in) throws IOException {
+		MethodData methodData = new MethodData(readString(in));
+		methodData.setDescriptor(readString(in));
+		methodData.setReturnType(readString(in));
+		for (String param : readStringList(in)) {
+			methodData.addParameter(param);
+		}
+		for (AccessModifiers am : readModifiers(in)) {
+			methodData.addModifier(am);
+		}
+		methodData.setMethodType(MethodType.values()[in.readByte()]);
+		methodData.setSignatureAttribute(readString(in));
+		return methodData;
+	}
+
+	/**
+	 * A body that is not decoded yet is decoded for this, but not kept, see MethodData.getDetachedBody.
+	 */
+	void writeMethodBody(DataOutputStream out, MethodData methodData) throws IOException {
+		MethodData body = methodData.getDetachedBody();
+		out.writeInt(body.getLocalVariables().size());
+		for (int slot = 0; slot < body.getLocalVariableSlotCount(); slot++) {
+			VariableData variableData = body.getLocalVariable(slot);
+			if (variableData != null) {
+				out.writeInt(slot);
+				writeVariableData(out, variableData);
+			}
+		}
+
+		writeInstructionStream(out, body.getInstructionStream());
+	}
+
+	void readMethodBody(DataInputStream in, MethodData methodData) throws IOException {
+		int localCount = in.readInt();
+		for (int i = 0; i < localCount; i++) {
+			int index = in.readInt();
+			methodData.addLocalVariable(index, readVariableData(in));
+		}
+
+		methodData.setInstructionStream(readInstructionStream(in));
+	}
+
+	private void writeVariableData(DataOutputStream out, VariableData variableData) throws IOException {
+		writeString(out, variableData.getName());
+		writeStringList(out, variableData.getDataTypes());
+		writeModifiers(out, variableData.getModifiers());
+		writeString(out, variableData.getSignatureAttribute());
+	}
+
+	private VariableData readVariableData(DataInputStream in) throws IOException {
+		VariableData variableData = new VariableData(readString(in), readStringList(in));
+		variableData.setModifiers(readModifiers(in));
+		variableData.setSignatureAttribute(readString(in));
+		return variableData;
+	}
+
+	/**
+	 * Symbol ids only mean something inside one run, so symbols are written out as strings.
+	 */
+	private void writeInstructionStream(DataOutputStream out, InstructionStream stream) throws IOException {
+		SymbolTable symbols = SymbolTable.global();
+		out.writeInt(stream.size());
+		for (int i = 0; i < stream.size(); i++) {
+			int opcode = stream.getOpcode(i);
+			out.writeShort(opcode);
+			out.writeByte(stream.getFlags(i));
+			if (InstructionStream.operandIsSymbol(opcode)) {
+				writeString(out, symbols.getSymbol(stream.getOperand(i)));
+			} else {
+				out.writeInt(stream.getOperand(i));
+			}
+			writeString(out, stream.getMemberName(i));
+			writeString(out, stream.getMemberDescriptor(i));
+		}
+	}
+
+	private InstructionStream readInstructionStream(DataInputStream in) throws IOException {
+		SymbolTable symbols = SymbolTable.global();
+		int size = in.readInt();
+		if (size == 0) {
+			return InstructionStream.EMPTY;
+		}
+		InstructionStream stream = new InstructionStream(size);
+		for (int i = 0; i < size; i++) {
+			int opcode = in.readShort();
+			int flags = in.readByte();
+			int operand = InstructionStream.operandIsSymbol(opcode) ? symbols.getId(readString(in)) : in.readInt();
+			int memberName = symbols.getId(readString(in));
+			int memberDescriptor = symbols.getId(readString(in));
+			stream.add(opcode, flags, operand, memberName, memberDescriptor);
+		}
+		return stream;
+	}
+
+	private void writeModifiers(DataOutputStream out, Set<AccessModifiers> modifiers) throws IOException {
+		out.writeByte(modifiers.size());
+		for (AccessModifiers am : modifiers) {
+			out.writeByte(am.ordinal());
+		}
+	}
+
+	private Set<AccessModifiers> readModifiers(DataInputStream in) throws IOException {
+		int count = in.readByte();
+		Set<AccessModifiers> modifiers = EnumSet.noneOf(AccessModifiers.class);
+		for (int i = 0; i < count; i++) {
+			modifiers.add(AccessModifiers.values()[in.readByte()]);
+		}
+		return modifiers;
+	}
+
+	private void writeStringList(DataOutputStream out, List<String> strings) throws IOException {
+		out.writeInt(strings.size());
+		for (String s : strings) {
+			writeString(out, s);
+		}
+	}
+
+	private List<String> readStringList(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		List<String> strings = new LinkedList<>();
+		for (int i = 0; i < count; i++) {
+			strings.add(readString(in));
+		}
+		return strings;
+	}
+
+	// writeUTF is limited to 64K, which long string constants can exceed
+	private void writeString(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return SymbolTable.global().intern(new String(bytes, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * A method body kept serialized in memory, as written by writeMethodBody.
+	 */
+	private class BufferedBodyDecoder implements MethodBodyDecoder {
+
+		private byte[] data;
+		private int offset;
+		private int length;
+
+		BufferedBodyDecoder(byte[] data, int offset, int length) {
+			this.data = data;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public void decode(MethodData methodData) {
+			try {
+				readMethodBody(new DataInputStream(new ByteArrayInputStream(this.data, this.offset, this.length)), methodData);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Corrupt method body of " + methodData.getName(), e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,61 @@
+package DataSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares one parsed ClassData between byte-identical class files, like the copies of a module
+ * in several build outputs, and keeps track of classes whose copies are not identical.
+ * Class files are told apart by their content key, see ParseCache.getContentKey.
+ * Safe to use from parallel parser workers.
+ */
+public class ClassDeduplicator {
+
+	private Map<String, ClassData> classesByContent;
+	// class name -> content key -> the first source seen with that content
+	private Map<String, Map<String, String>> sourcesByName;
+
+	public ClassDeduplicator() {
+		this.classesByContent = new ConcurrentHashMap<>();
+		this.sourcesByName = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Returns the class already parsed from identical bytes, or null.
+	 */
+	public ClassData get(String contentKey) {
+		return this.classesByContent.get(contentKey);
+	}
+
+	/**
+	 * Records a parsed class and returns the instance to use for it, which is an earlier one
+	 * if another worker parsed identical bytes at the same time.
+	 */
+	public ClassData add(String contentKey, ClassData classData, String source) {
+		ClassData shared = this.classesByContent.putIfAbsent(contentKey, classData);
+		this.sourcesByName.computeIfAbsent(classData.getName(), k -> new ConcurrentHashMap<>())
+				.putIfAbsent(contentKey, String.valueOf(source));
+		return shared == null ? classData : shared;
+	}
+
+	/**
+	 * The classes that came from class files with different contents, by class name,
+	 * with one source for each distinct content, sorted.
+	 */
+	public Map<String, List<String>> getConflicts() {
+		Map<String, List<String>> conflicts = new TreeMap<>();
+		for (Map.Entry<String, Map<String, String>> e : this.sourcesByName.entrySet()) {
+			if (e.getValue().size() > 1) {
+				List<String> sources = new ArrayList<>(e.getValue().values());
+				Collections.sort(sources);
+				conflicts.put(e.getKey(), sources);
+			}
+		}
+		return conflicts;
+	}
+
+}
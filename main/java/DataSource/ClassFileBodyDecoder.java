@@ -0,0 +1,49 @@
+package DataSource;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Holds on to the bytes of one class file and decodes the Code attribute
+ * of a single method from them when it is first needed.
+ * Only the requested method gets a MethodVisitor, the others are skipped by ClassReader.
+ */
+public class ClassFileBodyDecoder implements MethodBodyDecoder {
+
+	private byte[] classBytes;
+	private boolean readLocalVariables;
+
+	public ClassFileBodyDecoder(byte[] classBytes) {
+		this(classBytes, true);
+	}
+
+	public ClassFileBodyDecoder(byte[] classBytes, boolean readLocalVariables) {
+		this.classBytes = classBytes;
+		this.readLocalVariables = readLocalVariables;
+	}
+
+	byte[] getClassBytes() {
+		return this.classBytes;
+	}
+
+	boolean readsLocalVariables() {
+		return this.readLocalVariables;
+	}
+
+	@Override
+	public void decode(MethodData methodData) {
+		ClassReader cr = new ClassReader(this.classBytes);
+		cr.accept(new ClassVisitor(Opcodes.ASM9) {
+			@Override
+			public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+				if (name.equals(methodData.getName()) && descriptor.equals(methodData.getDescriptor())) {
+					return new MethodDataVisitor(methodData, readLocalVariables);
+				}
+				return null;
+			}
+		}, ClassReader.SKIP_FRAMES);
+	}
+
+}
@@ -0,0 +1,231 @@
+package DataSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds the class files below a directory.
+ *
+ * Patterns are globs matched against the path relative to the directory, with '/' as separator
+ * (e.g. "com/example/**" or "**&#47;generated/**"). A class file is found when it matches
+ * one of the include patterns (or there are none) and no exclude pattern. A directory that
+ * matches an exclude pattern, or whose contents "dir/**" would exclude, is not entered at all.
+ *
+ * Files are listed in directory listing order, depth first, whether the tree is walked on
+ * one thread or on a pool. Symbolic links are followed; a link back to one of its own parent
+ * directories is reported and skipped.
+ */
+public class ClassFileFinder {
+
+	private List<String> includes;
+	private List<String> excludes;
+
+	public ClassFileFinder() {
+		this(Collections.emptyList(), Collections.emptyList());
+	}
+
+	public ClassFileFinder(List<String> includes, List<String> excludes) {
+		this.includes = includes;
+		this.excludes = excludes;
+	}
+
+	public List<Path> findClassFiles(Path root) {
+		Matchers matchers = new Matchers(root);
+		List<Path> classFiles = new ArrayList<>();
+		if (!Files.isDirectory(root)) {
+			return classFiles;
+		}
+		try {
+			Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attrs) {
+					return matchers.isExcludedDirectory(directory) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					if (attrs.isRegularFile() && matchers.isIncludedFile(file)) {
+						classFiles.add(file);
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException e) {
+					if (e instanceof FileSystemLoopException) {
+						System.err.format("Symbolic link %s loops back to a parent directory, skipping\n", file);
+						return FileVisitResult.CONTINUE;
+					}
+					System.err.format("Failed to list %s, skipping (%s)\n", file, e);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to list class files under " + root, e);
+		}
+		return classFiles;
+	}
+
+	/**
+	 * Same as findClassFiles, but every subdirectory is listed as its own task on the pool.
+	 * Worth it when listing a directory is slow, like on a network mount.
+	 */
+	public List<Path> findClassFiles(Path root, ForkJoinPool pool) {
+		if (!Files.isDirectory(root)) {
+			return new ArrayList<>();
+		}
+		return pool.invoke(new DirectoryTask(new Matchers(root), root, Collections.emptySet()));
+	}
+
+	/**
+	 * Whether a single file below root, as reported by a file watcher, would have been found.
+	 */
+	public boolean isIncluded(Path root, Path file) {
+		Matchers matchers = new Matchers(root);
+		for (Path directory = file.getParent(); directory != null && directory.startsWith(root) && !directory.equals(root);
+			 directory = directory.getParent()) {
+			if (matchers.isExcludedDirectory(directory)) {
+				return false;
+			}
+		}
+		return matchers.isIncludedFile(file);
+	}
+
+	@SuppressWarnings("serial")
+	private class DirectoryTask extends RecursiveTask<List<Path>> {
+
+		private Matchers matchers;
+		private Path directory;
+		/** The directories above this one, by file key, to notice links that loop back. */
+		private Set<Object> parents;
+
+		DirectoryTask(Matchers matchers, Path directory, Set<Object> parents) {
+			this.matchers = matchers;
+			this.directory = directory;
+			this.parents = parents;
+		}
+
+		@Override
+		protected List<Path> compute() {
+			// files and subdirectories are kept in listing order and joined back in that order
+			List<Object> entries = new ArrayList<>();
+			List<DirectoryTask> tasks = new ArrayList<>();
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory)) {
+				Set<Object> parents = new HashSet<>(this.parents);
+				parents.add(fileKey(this.directory, Files.readAttributes(this.directory, BasicFileAttributes.class)));
+				for (Path entry : stream) {
+					BasicFileAttributes attrs;
+					try {
+						attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+					} catch (IOException e) {
+						System.err.format("Failed to list %s, skipping (%s)\n", entry, e);
+						continue;
+					}
+					if (attrs.isDirectory()) {
+						if (parents.contains(fileKey(entry, attrs))) {
+							System.err.format("Symbolic link %s loops back to a parent directory, skipping\n", entry);
+						} else if (!this.matchers.isExcludedDirectory(entry)) {
+							DirectoryTask task = new DirectoryTask(this.matchers, entry, parents);
+							tasks.add(task);
+							entries.add(task);
+						}
+					} else if (attrs.isRegularFile() && this.matchers.isIncludedFile(entry)) {
+						entries.add(entry);
+					}
+				}
+			} catch (IOException e) {
+				System.err.format("Failed to list %s, skipping (%s)\n", this.directory, e);
+			}
+
+			invokeAll(tasks);
+
+			List<Path> classFiles = new ArrayList<>();
+			for (Object entry : entries) {
+				if (entry instanceof DirectoryTask) {
+					classFiles.addAll(((DirectoryTask) entry).join());
+				} else {
+					classFiles.add((Path) entry);
+				}
+			}
+			return classFiles;
+		}
+
+		private Object fileKey(Path directory, BasicFileAttributes attrs) throws IOException {
+			// not every file system has file keys, the real path identifies the directory as well
+			return attrs.fileKey() != null ? attrs.fileKey() : directory.toRealPath();
+		}
+	}
+
+	/**
+	 * The patterns compiled for the file system of one root.
+	 */
+	private class Matchers {
+
+		private Path root;
+		private List<PathMatcher> includeMatchers;
+		private List<PathMatcher> excludeMatchers;
+		private List<PathMatcher> excludedContentMatchers;
+
+		Matchers(Path root) {
+			this.root = root;
+			FileSystem fs = root.getFileSystem();
+			this.includeMatchers = new ArrayList<>();
+			for (String include : includes) {
+				this.includeMatchers.add(fs.getPathMatcher("glob:" + include));
+			}
+			this.excludeMatchers = new ArrayList<>();
+			this.excludedContentMatchers = new ArrayList<>();
+			for (String exclude : excludes) {
+				this.excludeMatchers.add(fs.getPathMatcher("glob:" + exclude));
+				if (exclude.endsWith("/**")) {
+					this.excludedContentMatchers.add(fs.getPathMatcher("glob:" + exclude.substring(0, exclude.length() - 3)));
+				}
+			}
+		}
+
+		boolean isExcludedDirectory(Path directory) {
+			if (directory.equals(this.root)) {
+				return false;
+			}
+			Path relative = this.root.relativize(directory);
+			return matchesAny(this.excludeMatchers, relative) || matchesAny(this.excludedContentMatchers, relative);
+		}
+
+		boolean isIncludedFile(Path file) {
+			if (!file.getFileName().toString().endsWith(".class")) {
+				return false;
+			}
+			Path relative = this.root.relativize(file);
+			return (this.includeMatchers.isEmpty() || matchesAny(this.includeMatchers, relative))
+					&& !matchesAny(this.excludeMatchers, relative);
+		}
+
+		private boolean matchesAny(List<PathMatcher> matchers, Path path) {
+			for (PathMatcher matcher : matchers) {
+				if (matcher.matches(path)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+package DataSource;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads class files into a buffer that is reused for every read on the same thread and grows
+ * to the largest class file seen, so that reading a class file allocates no byte array.
+ * Works for plain files (through a FileChannel) as well as archive and JDK module entries.
+ *
+ * The bytes are only valid until the next read on the same thread: anything that keeps them
+ * around, like the lazy bodies of StreamingClassParser, has to copy them.
+ */
+public class ClassFileReader {
+
+	private static final int INITIAL_CAPACITY = 16 * 1024;
+
+	private ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);
+
+	/**
+	 * Reads a whole class file into the buffer of the current thread and returns that buffer.
+	 */
+	public Buffer read(Path path) throws IOException {
+		Buffer buffer = this.buffers.get();
+		try (SeekableByteChannel channel = Files.newByteChannel(path)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("Class file too large: " + path);
+			}
+			ByteBuffer target = buffer.prepare((int) size);
+			while (target.hasRemaining()) {
+				if (channel.read(target) < 0) {
+					throw new EOFException("Unexpected end of " + path);
+				}
+			}
+		}
+		return buffer;
+	}
+
+	/**
+	 * The bytes of the last class file read on a thread, from 0 to getLength().
+	 */
+	public static class Buffer {
+
+		private byte[] bytes = new byte[INITIAL_CAPACITY];
+		private ByteBuffer view = ByteBuffer.wrap(this.bytes);
+		private int length;
+
+		public byte[] getBytes() {
+			return this.bytes;
+		}
+
+		public int getLength() {
+			return this.length;
+		}
+
+		private ByteBuffer prepare(int size) {
+			if (size > this.bytes.length) {
+				this.bytes = new byte[Math.max(size, this.bytes.length * 2)];
+				this.view = ByteBuffer.wrap(this.bytes);
+			}
+			this.length = size;
+			this.view.clear().limit(size);
+			return this.view;
+		}
+	}
+
+}
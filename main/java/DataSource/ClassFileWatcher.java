@@ -0,0 +1,242 @@
+package DataSource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the configured inputs for class files that are created, modified or deleted.
+ *
+ * A source is either a single .class file below a watched directory or a whole .jar/.zip input.
+ * Directories are watched recursively, including directories created while watching.
+ * An archive is watched through its parent directory and is reported as one source.
+ */
+public class ClassFileWatcher implements Closeable {
+
+	/**
+	 * A compiler writes many class files in a burst; changes are collected until
+	 * nothing has happened for this long and then reported together.
+	 */
+	private static final long SETTLE_MILLIS = 50;
+
+	private WatchService watchService;
+	private Map<WatchKey, Path> watchedDirectories;
+	private Set<Path> classDirectories;
+	private Set<Path> archives;
+	private List<Path> directoryInputs;
+	private ClassFileFinder classFileFinder;
+
+	public ClassFileWatcher(List<String> inputs) {
+		this(inputs, new ClassFileFinder());
+	}
+
+	/**
+	 * Class files that the finder's include and exclude patterns leave out are not reported.
+	 */
+	public ClassFileWatcher(List<String> inputs, ClassFileFinder classFileFinder) {
+		this.watchedDirectories = new HashMap<>();
+		this.classDirectories = new HashSet<>();
+		this.archives = new LinkedHashSet<>();
+		this.directoryInputs = new ArrayList<>();
+		this.classFileFinder = classFileFinder;
+		try {
+			this.watchService = FileSystems.getDefault().newWatchService();
+			for (String input : inputs) {
+				Path path = Paths.get(input).toAbsolutePath().normalize();
+				if (ClassParser.isArchive(input)) {
+					this.archives.add(path);
+					register(path.getParent());
+				} else {
+					this.directoryInputs.add(path);
+					registerRecursively(path);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to watch " + inputs, e);
+		}
+	}
+
+	/**
+	 * Lists every source under the given inputs: each .class file of a directory input
+	 * and each archive input as a whole.
+	 */
+	public static List<Path> listSources(List<String> inputs, ClassFileFinder classFileFinder) {
+		List<Path> sources = new ArrayList<>();
+		for (String input : inputs) {
+			Path path = Paths.get(input).toAbsolutePath().normalize();
+			if (ClassParser.isArchive(input)) {
+				sources.add(path);
+			} else {
+				sources.addAll(classFileFinder.findClassFiles(path));
+			}
+		}
+		return sources;
+	}
+
+	/**
+	 * Blocks until at least one source changed, waits for the changes to settle and returns
+	 * every changed source. A returned path that no longer exists was deleted; it may be
+	 * a directory, in which case every source below it is gone.
+	 */
+	public Set<Path> awaitChanges() throws InterruptedException {
+		Set<Path> changed = new LinkedHashSet<>();
+		WatchKey key = this.watchService.take();
+		while (key != null) {
+			collectChanges(key, changed);
+			key = this.watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+			if (key == null && changed.isEmpty()) {
+				key = this.watchService.take();
+			}
+		}
+		return changed;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.watchService.close();
+	}
+
+	private void collectChanges(WatchKey key, Set<Path> changed) {
+		Path directory = this.watchedDirectories.get(key);
+		if (directory == null) {
+			key.pollEvents();
+			key.reset();
+			return;
+		}
+		boolean classDirectory = this.classDirectories.contains(directory);
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				// events were lost, so everything below this directory has to be looked at again
+				if (classDirectory) {
+					changed.addAll(listClassFiles(directory));
+				}
+				for (Path archive : this.archives) {
+					if (archive.getParent().equals(directory)) {
+						changed.add(archive);
+					}
+				}
+				continue;
+			}
+
+			Path path = directory.resolve((Path) event.context());
+			if (this.archives.contains(path)) {
+				changed.add(path);
+			} else if (classDirectory && event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+				// class files may already have been written before the directory was registered
+				registerRecursively(path);
+				changed.addAll(listClassFiles(path));
+			} else if (classDirectory && path.toString().endsWith(".class")) {
+				if (isIncluded(path)) {
+					changed.add(path);
+				}
+			} else if (classDirectory && !Files.exists(path)) {
+				changed.add(path);
+			}
+		}
+
+		if (!key.reset()) {
+			this.watchedDirectories.remove(key);
+			this.classDirectories.remove(directory);
+		}
+	}
+
+	private void register(Path directory) {
+		try {
+			WatchKey key = directory.register(this.watchService,
+					StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY,
+					StandardWatchEventKinds.ENTRY_DELETE);
+			this.watchedDirectories.put(key, directory);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to watch directory " + directory, e);
+		}
+	}
+
+	private void registerRecursively(Path root) {
+		if (!Files.isDirectory(root)) {
+			return;
+		}
+		walk(root, new LinkFollowingVisitor() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attrs) {
+				register(directory);
+				classDirectories.add(directory);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private boolean isIncluded(Path classFile) {
+		for (Path input : this.directoryInputs) {
+			if (classFile.startsWith(input)) {
+				return this.classFileFinder.isIncluded(input, classFile);
+			}
+		}
+		return true;
+	}
+
+	private List<Path> listClassFiles(Path root) {
+		List<Path> classFiles = new ArrayList<>();
+		if (!Files.isDirectory(root)) {
+			return classFiles;
+		}
+		walk(root, new LinkFollowingVisitor() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (attrs.isRegularFile() && file.toString().endsWith(".class") && isIncluded(file)) {
+					classFiles.add(file);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		return classFiles;
+	}
+
+	private void walk(Path root, LinkFollowingVisitor visitor) {
+		try {
+			Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, visitor);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to walk directory " + root, e);
+		}
+	}
+
+	/**
+	 * Visits directories the same way ClassFileFinder does when walked with FOLLOW_LINKS:
+	 * a link back to one of its parent directories is reported and skipped.
+	 */
+	private static class LinkFollowingVisitor extends SimpleFileVisitor<Path> {
+
+		@Override
+		public FileVisitResult visitFileFailed(Path file, IOException e) {
+			if (e instanceof FileSystemLoopException) {
+				System.err.format("Symbolic link %s loops back to a parent directory, skipping\n", file);
+			} else {
+				System.err.format("Failed to list %s, skipping (%s)\n", file, e);
+			}
+			return FileVisitResult.CONTINUE;
+		}
+	}
+
+}
@@ -2,70 +2,321 @@ package DataSource;
 
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.FieldNode;
 import org.objectweb.asm.tree.MethodNode;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class ClassParser {
 
-	private MethodParser methodParser;
+	protected MethodParser methodParser;
+	private ParseCache parseCache;
+	private FileManifest fileManifest;
+	private ClassFileFinder classFileFinder;
+	private MethodBodySpill methodBodySpill;
+	private PackageFilter packageFilter;
+	private ClassDeduplicator deduplicator;
+	private ClassFileReader classFileReader;
+	protected Set<ModelFacet> facets = EnumSet.allOf(ModelFacet.class);
 
 	public ClassParser() {
 		this.methodParser = new MethodParser();
+		this.classFileFinder = new ClassFileFinder();
+		this.classFileReader = new ClassFileReader();
 	}
 
+	public void setParseCache(ParseCache parseCache) {
+		this.parseCache = parseCache;
+	}
+
+	/**
+	 * Lets unchanged class files be loaded from the parse cache without reading them.
+	 * Only used together with a parse cache.
+	 */
+	public void setFileManifest(FileManifest fileManifest) {
+		this.fileManifest = fileManifest;
+	}
+
+	public void setClassFileFinder(ClassFileFinder classFileFinder) {
+		this.classFileFinder = classFileFinder;
+	}
+
+	public ClassFileFinder getClassFileFinder() {
+		return this.classFileFinder;
+	}
+
+	/**
+	 * Parses only the given parts of the model; the rest is left empty. Instructions and local
+	 * variables imply methods, signatures imply fields. Everything is parsed by default.
+	 */
+	public void setFacets(Set<ModelFacet> facets) {
+		this.facets = EnumSet.of(ModelFacet.HIERARCHY);
+		this.facets.addAll(facets);
+		if (this.facets.contains(ModelFacet.INSTRUCTIONS) || this.facets.contains(ModelFacet.LOCAL_VARIABLES)) {
+			this.facets.add(ModelFacet.METHODS);
+		}
+		if (this.facets.contains(ModelFacet.SIGNATURES)) {
+			this.facets.add(ModelFacet.FIELDS);
+		}
+		this.methodParser.setReadLocalVariables(this.facets.contains(ModelFacet.LOCAL_VARIABLES));
+		this.methodParser.setReadSignatures(this.facets.contains(ModelFacet.SIGNATURES));
+	}
+
+	/**
+	 * Whether method bodies are left undecoded until a check reads them, see StreamingClassParser.
+	 * Classes loaded from the parse cache then keep their bodies undecoded as well.
+	 */
+	protected boolean parsesLazily() {
+		return false;
+	}
+
+	protected boolean parsesMethodBodies() {
+		return this.facets.contains(ModelFacet.INSTRUCTIONS) || this.facets.contains(ModelFacet.LOCAL_VARIABLES);
+	}
+
+	/**
+	 * The ClassReader flags for a full parse. Frames are never part of the model, and debug
+	 * information is only skipped together with the code: the line numbers in it count as
+	 * nodes for the instruction flags, see MethodDataVisitor.
+	 */
+	protected int getReaderFlags() {
+		if (!parsesMethodBodies()) {
+			return ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+		}
+		return ClassReader.SKIP_FRAMES;
+	}
+
+	/**
+	 * The parse cache keeps classes parsed with fewer facets apart from complete ones.
+	 */
+	private String getCacheKey(String contentKey) {
+		if (this.facets.size() == ModelFacet.values().length) {
+			return contentKey;
+		}
+		int mask = 0;
+		for (ModelFacet facet : this.facets) {
+			mask |= 1 << facet.ordinal();
+		}
+		return contentKey + "-" + Integer.toHexString(mask);
+	}
+
+	/**
+	 * Classes the filter does not accept are not parsed, only their header is read,
+	 * see parseClassHeaderOnly.
+	 */
+	public void setPackageFilter(PackageFilter packageFilter) {
+		this.packageFilter = packageFilter;
+	}
+
+	/**
+	 * Spills the method bodies of every parsed class, see MethodBodySpill.
+	 */
+	public void setMethodBodySpill(MethodBodySpill methodBodySpill) {
+		this.methodBodySpill = methodBodySpill;
+	}
+
+	/**
+	 * Parses byte-identical class files only once and shares the result, see ClassDeduplicator.
+	 */
+	public void setDeduplicator(ClassDeduplicator deduplicator) {
+		this.deduplicator = deduplicator;
+	}
 
 	public ClassData parseClassData(File f){
-		byte[] arr = getBytes(f);
+		if(this.parseCache != null && this.fileManifest != null) {
+			return parseClassFileThroughManifest(f);
+		}
+
+		ClassFileReader.Buffer buffer = readClassFile(f.toPath());
+		return parseClassBytes(buffer.getBytes(), buffer.getLength(), f.toString());
+
+	}
 
-		if(arr == null) {
-			throw new RuntimeException("Failed to open file for parsing " + f);
+	/**
+	 * Parses the bytes of a class file, going through the parse cache when one is set.
+	 * The returned class is frozen.
+	 */
+	public ClassData parseClassBytes(byte[] arr) {
+		return parseClassBytes(arr, arr.length, null);
+	}
+
+	/**
+	 * @param length the class file is arr[0..length), the rest of arr is ignored
+	 * @param source where the bytes were read from, for reporting conflicting duplicates
+	 */
+	public ClassData parseClassBytes(byte[] arr, int length, String source) {
+		ClassData stub = parseIfFilteredOut(arr, length);
+		if(stub != null) {
+			return stub;
 		}
 
-		ClassReader cr = new ClassReader(arr);
-		ClassNode cn = new ClassNode();
-		cr.accept(cn, ClassReader.EXPAND_FRAMES);
+		if(this.deduplicator == null) {
+			if(this.parseCache == null) {
+				return finish(parseClassData(arr, length));
+			}
+			return loadOrParse(ParseCache.getContentKey(arr, length), arr, length);
+		}
 
-		return parseClassDataFromNode(cn);
+		String contentKey = ParseCache.getContentKey(arr, length);
+		ClassData shared = this.deduplicator.get(contentKey);
+		if(shared != null) {
+			return shared;
+		}
+		ClassData classData = this.parseCache == null ? finish(parseClassData(arr, length)) : loadOrParse(contentKey, arr, length);
+		return share(contentKey, classData, source);
+	}
 
-		
+	private ClassData loadOrParse(String contentKey, byte[] arr, int length) {
+		String key = getCacheKey(contentKey);
+		ClassData classData = this.parseCache.load(key, parsesLazily());
+		if(classData == null) {
+			classData = parseClassData(arr, length);
+			this.parseCache.store(key, classData);
+		}
+		return finish(classData);
+	}
 
+	private ClassData finish(ClassData classData) {
+		classData.freeze();
+		if(this.methodBodySpill != null) {
+			this.methodBodySpill.spill(classData);
+		}
+		return classData;
 	}
 
-	public ClassData parseClassDataFromNode(ClassNode cn) {
-		ClassData classData = new ClassData();
+	private ClassData parseClassFileThroughManifest(File f) {
+		long size = f.length();
+		long lastModified = f.lastModified();
+		String key = this.fileManifest.getCacheKey(f.toPath(), size, lastModified);
+		if(key != null) {
+			ClassData shared = this.deduplicator == null ? null : this.deduplicator.get(key);
+			if(shared != null) {
+				return shared;
+			}
+			ClassData classData = this.parseCache.load(getCacheKey(key), parsesLazily());
+			// a class the filter rejects is read again below to make its header-only stub
+			if(classData != null && (this.packageFilter == null || this.packageFilter.accepts(classData.getName()))) {
+				return share(key, finish(classData), f.toString());
+			}
+		}
+
+		ClassFileReader.Buffer buffer = readClassFile(f.toPath());
+		byte[] arr = buffer.getBytes();
+		int length = buffer.getLength();
+		ClassData stub = parseIfFilteredOut(arr, length);
+		if(stub != null) {
+			return stub;
+		}
+
+		key = ParseCache.getContentKey(arr, length);
+		this.fileManifest.put(f.toPath(), size, lastModified, key);
+		ClassData shared = this.deduplicator == null ? null : this.deduplicator.get(key);
+		if(shared != null) {
+			return shared;
+		}
+		return share(key, loadOrParse(key, arr, length), f.toString());
+	}
+
+	private ClassData share(String contentKey, ClassData classData, String source) {
+		if(this.deduplicator == null) {
+			return classData;
+		}
+		return this.deduplicator.add(contentKey, classData, source);
+	}
+
+	/**
+	 * Returns the header-only class if the package filter does not accept the class, else null.
+	 */
+	private ClassData parseIfFilteredOut(byte[] arr, int length) {
+		if(this.packageFilter == null) {
+			return null;
+		}
+		ClassReader cr = new ClassReader(arr, 0, length);
+		if(this.packageFilter.accepts(SymbolTable.global().toClassName(cr.getClassName()))) {
+			return null;
+		}
+		return parseClassHeaderOnly(cr);
+	}
+
+	/**
+	 * Builds a header-only class (see ClassData.isHeaderOnly) from the class file header,
+	 * without visiting fields, methods or attributes.
+	 */
+	public ClassData parseClassHeaderOnly(ClassReader cr) {
+		ClassData classData = parseClassHeader(cr.getAccess(), cr.getClassName(), cr.getSuperName(),
+				new ArrayList<>(Arrays.asList(cr.getInterfaces())));
+		classData.setHeaderOnly(true);
+		return classData.freeze();
+	}
+
+	public ClassData parseClassData(byte[] arr) {
+		return parseClassData(arr, arr.length);
+	}
+
+	/**
+	 * Parses the class file in arr[0..length) without going through the parse cache.
+	 * Overrides must not hold on to arr, which may be a reused read buffer, see ClassFileReader.
+	 */
+	public ClassData parseClassData(byte[] arr, int length) {
+		ClassReader cr = new ClassReader(arr, 0, length);
+		ClassNode cn = new ClassNode();
+		cr.accept(cn, getReaderFlags());
+
+		return parseClassDataFromNode(cn);
+	}
 
-		classData.setClassName(cn.name);
-		classData.setUserFriendlyClassName(Type.getObjectType(cn.name).getClassName());
-		classData.setSuperClassName(cn.superName);
-		classData.setInterfaces(cn.interfaces);
+	public ClassData parseClassDataFromNode(ClassNode cn) {
+		ClassData classData = parseClassHeader(cn.access, cn.name, cn.superName, cn.interfaces);
 
-		for(MethodNode methodNode : cn.methods) {
-			classData.addMethod(this.methodParser.parseMethodData(methodNode));
+		if(this.facets.contains(ModelFacet.METHODS)) {
+			for(MethodNode methodNode : cn.methods) {
+				classData.addMethod(this.methodParser.parseMethodData(methodNode));
+			}
 		}
 
-		for(FieldNode fieldNode : cn.fields) {
-			classData.addFieldVariable(parseFieldVariable(fieldNode));
+		if(this.facets.contains(ModelFacet.FIELDS)) {
+			for(FieldNode fieldNode : cn.fields) {
+				classData.addFieldVariable(parseFieldVariable(fieldNode));
+			}
 		}
 
-		if((cn.access & Opcodes.ACC_PUBLIC) != 0)
+		return classData;
+	}
+
+	protected ClassData parseClassHeader(int access, String name, String superName, List<String> interfaces) {
+		ClassData classData = new ClassData();
+
+		classData.setClassName(name);
+		classData.setUserFriendlyClassName(SymbolTable.global().toClassName(name));
+		classData.setSuperClassName(superName);
+		classData.setInterfaces(interfaces);
+
+		if((access & Opcodes.ACC_PUBLIC) != 0)
 			classData.addModifier(AccessModifiers.PUBLIC);
-		if((cn.access & Opcodes.ACC_PRIVATE) != 0)
+		if((access & Opcodes.ACC_PRIVATE) != 0)
 			classData.addModifier(AccessModifiers.PRIVATE);
-		if((cn.access & Opcodes.ACC_PROTECTED) != 0)
+		if((access & Opcodes.ACC_PROTECTED) != 0)
 			classData.addModifier(AccessModifiers.PROTECTED);
 
-		if((cn.access & Opcodes.ACC_INTERFACE) != 0)
+		if((access & Opcodes.ACC_INTERFACE) != 0)
 			classData.setClassType(ClassType.INTERFACE);
-		else if((cn.access & Opcodes.ACC_ABSTRACT) != 0)
+		else if((access & Opcodes.ACC_ABSTRACT) != 0)
 			classData.setClassType(ClassType.ABSTRACT);
 		else
 			classData.setClassType(ClassType.CONCRETE);
@@ -75,46 +326,45 @@ public class ClassParser {
 
 	
 
-	private byte[] getBytes(File file) {
-		FileInputStream fl;
-		try {
-			fl = new FileInputStream(file);
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-			return null;
-		}
-		byte[] arr = new byte[(int)file.length()];
+	private ClassFileReader.Buffer readClassFile(Path file) {
 		try {
-			fl.read(arr);
-			fl.close();
+			return this.classFileReader.read(file);
 		} catch (IOException e) {
-			e.printStackTrace();
+			throw new UncheckedIOException("Failed to open file for parsing " + file, e);
 		}
-		return arr;
 	}
 
 	private VariableData parseFieldVariable(FieldNode fieldNode) {
+		return parseFieldVariable(fieldNode.access, fieldNode.name, fieldNode.desc, fieldNode.signature);
+	}
+
+	protected VariableData parseFieldVariable(int access, String name, String desc, String signature) {
 		VariableData variableData = new VariableData();
 		
-		List<String> dataTypes = getVariableDataTypes(fieldNode);
+		List<String> dataTypes = new LinkedList<>();
+		dataTypes.add(SymbolTable.global().getTypeName(desc));
+		if(signature != null && this.facets.contains(ModelFacet.SIGNATURES)) {
+			variableData.setSignatureAttribute(SymbolTable.global().intern(signature));
+			dataTypes.addAll(variableData.getGenericType().getTypeArgumentClassNames());
+		}
 		variableData.setListDataType(dataTypes);
-		variableData.setName(fieldNode.name);
+		variableData.setName(SymbolTable.global().intern(name));
 		boolean hasAccessModifier = false;
-		if((fieldNode.access & Opcodes.ACC_PUBLIC) != 0) {
+		if((access & Opcodes.ACC_PUBLIC) != 0) {
 			variableData.addModifier(AccessModifiers.PUBLIC);
 			hasAccessModifier = true;
 		}
-		if((fieldNode.access & Opcodes.ACC_PRIVATE) != 0) {
+		if((access & Opcodes.ACC_PRIVATE) != 0) {
 			variableData.addModifier(AccessModifiers.PRIVATE);
 			hasAccessModifier = true;
 		}
-		if((fieldNode.access & Opcodes.ACC_PROTECTED) != 0) {
+		if((access & Opcodes.ACC_PROTECTED) != 0) {
 			variableData.addModifier(AccessModifiers.PROTECTED);
 			hasAccessModifier = true;
 		}
-		if((fieldNode.access & Opcodes.ACC_STATIC) != 0)
+		if((access & Opcodes.ACC_STATIC) != 0)
 			variableData.addModifier(AccessModifiers.STATIC);
-		if((fieldNode.access & Opcodes.ACC_FINAL) != 0)
+		if((access & Opcodes.ACC_FINAL) != 0)
 			variableData.addModifier(AccessModifiers.FINAL);
 		if(!hasAccessModifier) {
 			variableData.addModifier(AccessModifiers.DEFAULT);
@@ -124,20 +374,6 @@ public class ClassParser {
 	}
 
 
-	private List<String> getVariableDataTypes(FieldNode fieldNode) {
-		// TODO Auto-generated method stub
-		List<String> dataTypes = new LinkedList<>();
-		dataTypes.add(Type.getType(fieldNode.desc).getClassName());
-		if(fieldNode.signature!=null) {
-			String sig = fieldNode.signature;
-			String[] classes = sig.split("[<,;>]");
-			for(int i = 1;i<classes.length;i++) {
-				dataTypes.add(Type.getType(classes[i] + ";").getClassName());
-			}
-		}
-		return dataTypes;
-	}
-
 
 	public List<ClassData> recursivelyParseAllClassFilesInDirectory(String directory) {
 		List<ClassData> classDataList = new LinkedList<>();
@@ -146,19 +382,92 @@ public class ClassParser {
 	}
 
 	public void recursivelyParseAllClassFilesInDirectory(String directory, List<ClassData> fileList) {
-			File root = new File(directory);
-			File[] list = root.listFiles();
-
-			if (list == null) return;
-
-			for (File f : list) {
-				if ( f.isDirectory() ) {
-					recursivelyParseAllClassFilesInDirectory(f.getAbsolutePath(), fileList);
-				}
-				else if(f.getName().endsWith(".class")) {
-					fileList.add(parseClassData(f));
-				}
+		for (Path classFile : this.classFileFinder.findClassFiles(Paths.get(directory))) {
+			fileList.add(parseClassData(classFile.toFile()));
+		}
+	}
+
+	public static boolean isArchive(String path) {
+		String lower = path.toLowerCase();
+		return lower.endsWith(".jar") || lower.endsWith(".zip");
+	}
+
+	/**
+	 * Opens a jar/zip through the JDK zip filesystem, which reads entries straight
+	 * out of the archive without extracting them to disk.
+	 */
+	public static FileSystem openArchive(String archive) {
+		try {
+			return FileSystems.newFileSystem(Paths.get(archive), (ClassLoader) null);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to open archive " + archive, e);
+		}
+	}
+
+	/**
+	 * Lists the class file entries of an opened archive. module-info and the
+	 * multi-release copies under META-INF are skipped.
+	 */
+	public static List<Path> listArchiveClassEntries(FileSystem archive) {
+		Path root = archive.getPath("/");
+		try (Stream<Path> entries = Files.walk(root)) {
+			return entries
+					.filter(entry -> entry.toString().endsWith(".class"))
+					.filter(entry -> !entry.getFileName().toString().equals("module-info.class"))
+					.filter(entry -> !entry.startsWith(root.resolve("META-INF")))
+					.collect(Collectors.toList());
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to list archive " + archive, e);
+		}
+	}
+
+	public ClassData parseArchiveEntry(Path entry) {
+		try {
+			ClassFileReader.Buffer buffer = this.classFileReader.read(entry);
+			return parseClassBytes(buffer.getBytes(), buffer.getLength(), entry.getFileSystem() + "!" + entry);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read archive entry " + entry, e);
+		}
+	}
+
+	public List<ClassData> parseAllClassFilesInArchive(String archive) {
+		List<ClassData> classDataList = new LinkedList<>();
+		parseAllClassFilesInArchive(archive, classDataList);
+		return classDataList;
+	}
+
+	public void parseAllClassFilesInArchive(String archive, List<ClassData> fileList) {
+		try (FileSystem fs = openArchive(archive)) {
+			for (Path entry : listArchiveClassEntries(fs)) {
+				fileList.add(parseArchiveEntry(entry));
 			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to close archive " + archive, e);
+		}
+	}
 
+	/**
+	 * Parses one source as reported by ClassFileWatcher: a single class file or a whole archive.
+	 */
+	public List<ClassData> parseSource(Path source) {
+		List<ClassData> classDataList = new LinkedList<>();
+		if (isArchive(source.toString())) {
+			parseAllClassFilesInArchive(source.toString(), classDataList);
+		} else {
+			classDataList.add(parseClassData(source.toFile()));
+		}
+		return classDataList;
+	}
+
+	/**
+	 * Parses every class under a configured input, which is either a directory
+	 * or a .jar/.zip archive.
+	 */
+	public void parseAllClassFiles(String path, List<ClassData> fileList) {
+		if (isArchive(path)) {
+			parseAllClassFilesInArchive(path, fileList);
+		} else {
+			recursivelyParseAllClassFilesInDirectory(path, fileList);
+		}
 	}
 }
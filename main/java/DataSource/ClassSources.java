@@ -0,0 +1,129 @@
+package DataSource;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The classes parsed from each source (a class file or an archive) while watching, and which
+ * source's definition of a class is the one in use.
+ *
+ * As when linting once, the first source that defines a class wins: sources count in the order
+ * they were first added, so a source that changes keeps its place and a new source comes last.
+ * A class only goes away once no source defines it any more.
+ */
+public class ClassSources {
+
+	private Map<Path, Map<String, ClassData>> classesBySource;
+	private Map<Path, Long> sourceOrder;
+	private Map<String, Set<Path>> sourcesByClass;
+	private long nextOrder;
+
+	public ClassSources() {
+		this.classesBySource = new HashMap<>();
+		this.sourceOrder = new HashMap<>();
+		this.sourcesByClass = new HashMap<>();
+	}
+
+	/**
+	 * Replaces the classes of a source.
+	 *
+	 * @return the names of the classes the source defined before or defines now, whose definition may have changed
+	 */
+	public Set<String> put(Path source, List<ClassData> classes) {
+		Set<String> classNames = removeClasses(source);
+		Map<String, ClassData> classesByName = new LinkedHashMap<>();
+		for (ClassData classData : classes) {
+			classesByName.putIfAbsent(classData.getName(), classData);
+		}
+		this.classesBySource.put(source, classesByName);
+		this.sourceOrder.computeIfAbsent(source, k -> this.nextOrder++);
+		for (String className : classesByName.keySet()) {
+			this.sourcesByClass.computeIfAbsent(className, k -> new HashSet<>()).add(source);
+		}
+		classNames.addAll(classesByName.keySet());
+		return classNames;
+	}
+
+	/**
+	 * Removes a deleted source, or every source below a deleted directory.
+	 *
+	 * @return the names of the classes the removed sources defined
+	 */
+	public Set<String> remove(Path path) {
+		Set<String> classNames = new LinkedHashSet<>();
+		List<Path> removed = new ArrayList<>();
+		for (Path source : this.classesBySource.keySet()) {
+			if (source.startsWith(path)) {
+				removed.add(source);
+			}
+		}
+		for (Path source : removed) {
+			classNames.addAll(removeClasses(source));
+			this.classesBySource.remove(source);
+			this.sourceOrder.remove(source);
+		}
+		return classNames;
+	}
+
+	/**
+	 * The definition of a class from the first source that defines it, or null if none does.
+	 */
+	public ClassData getDefinition(String className) {
+		Set<Path> sources = this.sourcesByClass.get(className);
+		if (sources == null) {
+			return null;
+		}
+		Path first = null;
+		for (Path source : sources) {
+			if (first == null || this.sourceOrder.get(source) < this.sourceOrder.get(first)) {
+				first = source;
+			}
+		}
+		return this.classesBySource.get(first).get(className);
+	}
+
+	/**
+	 * The definitions that are not in use because an earlier source defines the same class.
+	 * They are put back once the earlier definitions go away.
+	 */
+	public Collection<ClassData> getShadowedDefinitions() {
+		List<ClassData> shadowed = new ArrayList<>();
+		for (Map.Entry<String, Set<Path>> entry : this.sourcesByClass.entrySet()) {
+			if (entry.getValue().size() < 2) {
+				continue;
+			}
+			ClassData definition = getDefinition(entry.getKey());
+			for (Path source : entry.getValue()) {
+				ClassData classData = this.classesBySource.get(source).get(entry.getKey());
+				if (classData != definition) {
+					shadowed.add(classData);
+				}
+			}
+		}
+		return shadowed;
+	}
+
+	private Set<String> removeClasses(Path source) {
+		Map<String, ClassData> classes = this.classesBySource.get(source);
+		if (classes == null) {
+			return new LinkedHashSet<>();
+		}
+		for (String className : classes.keySet()) {
+			Set<Path> sources = this.sourcesByClass.get(className);
+			sources.remove(source);
+			if (sources.isEmpty()) {
+				this.sourcesByClass.remove(className);
+			}
+		}
+		return new LinkedHashSet<>(classes.keySet());
+	}
+
+}
@@ -0,0 +1,327 @@
+package DataSource;
+
+import org.objectweb.asm.ClassReader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Looks up classes that are not being linted (JDK and library types) on a classpath,
+ * so that hierarchy queries can see through them.
+ *
+ * Only the class header is read (access flags, super class and interfaces), and only when a
+ * type is first asked for. The entries of the classpath are directories, .jar/.zip files, or
+ * "jrt" for the modules of the running JDK. Everything that was looked up in archives and the
+ * JDK, including types that were not found, is kept in a small index file and read back by the
+ * next run, as long as those have not changed since. Lookups that reach a directory entry are
+ * not kept, since its class files can change without the directory itself changing.
+ */
+public class ClasspathTypeResolver {
+
+	public static final String JRT_ENTRY = "jrt";
+
+	private static final int MAGIC = 0x4A4C4349;
+	private static final int FORMAT_VERSION = 2;
+
+	private List<String> entries;
+	private Path indexPath;
+	private String fingerprint;
+	private ClassParser classParser;
+	private ClassFileReader classFileReader;
+
+	// internal name -> header, or null when the type is not on the classpath
+	private Map<String, Header> headers;
+	private Map<String, ClassData> resolved;
+	private boolean indexChanged;
+	// the position of the first directory entry, and the lookups that got that far
+	private int firstDirectory;
+	private Set<String> unsavedLookups;
+
+	private List<Path> roots;
+	private List<FileSystem> openArchives;
+	private Map<String, List<Path>> jrtPackageDirectories;
+
+	public ClasspathTypeResolver(List<String> entries, String indexPath) {
+		this.entries = entries;
+		this.indexPath = indexPath == null ? null : Paths.get(indexPath);
+		this.fingerprint = computeFingerprint(entries);
+		this.classParser = new ClassParser();
+		this.classFileReader = new ClassFileReader();
+		this.headers = new HashMap<>();
+		this.resolved = new HashMap<>();
+		this.unsavedLookups = new HashSet<>();
+		this.firstDirectory = entries.size();
+		for (int i = 0; i < entries.size(); i++) {
+			if (!entries.get(i).equals(JRT_ENTRY) && !ClassParser.isArchive(entries.get(i))) {
+				this.firstDirectory = i;
+				break;
+			}
+		}
+		loadIndex();
+	}
+
+	/**
+	 * Returns a header-only ClassData (no fields or methods) for a class given by its
+	 * user friendly name, or null if it is not on the classpath.
+	 */
+	public synchronized ClassData resolve(String className) {
+		if (className == null) {
+			return null;
+		}
+		if (this.resolved.containsKey(className)) {
+			return this.resolved.get(className);
+		}
+
+		String internalName = className.replace('.', '/');
+		Header header;
+		if (this.headers.containsKey(internalName)) {
+			header = this.headers.get(internalName);
+		} else {
+			header = readHeader(internalName);
+			this.headers.put(internalName, header);
+			this.indexChanged |= !this.unsavedLookups.contains(internalName);
+		}
+
+		ClassData classData = null;
+		if (header != null) {
+			classData = this.classParser.parseClassHeader(header.access, internalName, header.superName,
+					new ArrayList<>(Arrays.asList(header.interfaces)));
+			classData.setHeaderOnly(true);
+			classData.freeze();
+		}
+		this.resolved.put(className, classData);
+		return classData;
+	}
+
+	/**
+	 * Writes the index if anything was looked up that is not in it yet.
+	 */
+	public synchronized void saveIndex() {
+		if (!this.indexChanged || this.indexPath == null) {
+			return;
+		}
+		writeIndex();
+		this.indexChanged = false;
+	}
+
+	/**
+	 * Saves the index and closes the archives that were opened for lookups.
+	 */
+	public synchronized void close() {
+		saveIndex();
+		if (this.openArchives != null) {
+			for (FileSystem archive : this.openArchives) {
+				try {
+					archive.close();
+				} catch (IOException e) {
+					System.err.format("Failed to close classpath archive (%s)\n", e);
+				}
+			}
+		}
+	}
+
+	private Header readHeader(String internalName) {
+		openRoots();
+		String fileName = internalName + ".class";
+		for (int i = 0; i < this.roots.size(); i++) {
+			Path root = this.roots.get(i);
+			if (i == this.firstDirectory) {
+				this.unsavedLookups.add(internalName);
+			}
+			Path classFile = root == null ? findInJrt(internalName) : root.resolve(fileName);
+			if (classFile == null || !Files.isRegularFile(classFile)) {
+				continue;
+			}
+			try {
+				// the header is all that is needed, so the class is never run through a visitor
+				ClassFileReader.Buffer buffer = this.classFileReader.read(classFile);
+				ClassReader cr = new ClassReader(buffer.getBytes(), 0, buffer.getLength());
+				return new Header(cr.getAccess(), cr.getSuperName(), cr.getInterfaces());
+			} catch (IOException | RuntimeException e) {
+				System.err.format("Failed to read classpath class %s (%s)\n", classFile, e);
+			}
+		}
+		return null;
+	}
+
+	// a null root stands for the JDK modules
+	private void openRoots() {
+		if (this.roots != null) {
+			return;
+		}
+		this.roots = new ArrayList<>();
+		this.openArchives = new ArrayList<>();
+		for (String entry : this.entries) {
+			if (entry.equals(JRT_ENTRY)) {
+				this.roots.add(null);
+			} else if (ClassParser.isArchive(entry)) {
+				FileSystem archive = ClassParser.openArchive(entry);
+				this.openArchives.add(archive);
+				this.roots.add(archive.getPath("/"));
+			} else {
+				this.roots.add(Paths.get(entry));
+			}
+		}
+	}
+
+	/**
+	 * The jrt file system lists the modules containing each package under /packages/<package>,
+	 * so a class is found without searching every module.
+	 */
+	private Path findInJrt(String internalName) {
+		int lastSlash = internalName.lastIndexOf('/');
+		if (lastSlash < 0) {
+			return null;
+		}
+		String packageName = internalName.substring(0, lastSlash).replace('/', '.');
+
+		if (this.jrtPackageDirectories == null) {
+			this.jrtPackageDirectories = new HashMap<>();
+		}
+		List<Path> moduleDirectories = this.jrtPackageDirectories.get(packageName);
+		if (moduleDirectories == null) {
+			moduleDirectories = new ArrayList<>();
+			Path packageDirectory = FileSystems.getFileSystem(URI.create("jrt:/")).getPath("/packages", packageName);
+			if (Files.isDirectory(packageDirectory)) {
+				try (Stream<Path> modules = Files.list(packageDirectory)) {
+					moduleDirectories = modules.collect(Collectors.toList());
+				} catch (IOException e) {
+					System.err.format("Failed to list JDK package %s (%s)\n", packageName, e);
+				}
+			}
+			this.jrtPackageDirectories.put(packageName, moduleDirectories);
+		}
+
+		for (Path moduleDirectory : moduleDirectories) {
+			Path classFile = moduleDirectory.resolve(internalName + ".class");
+			if (Files.isRegularFile(classFile)) {
+				return classFile;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Identifies the classpath an index was written for: the entries in order, with the size and
+	 * modification time of each archive, and the version and location of the JDK.
+	 * Directories only count by their path, see unsavedLookups.
+	 */
+	private static String computeFingerprint(List<String> entries) {
+		StringBuilder sb = new StringBuilder();
+		for (String entry : entries) {
+			sb.append(entry);
+			if (entry.equals(JRT_ENTRY)) {
+				sb.append(':').append(System.getProperty("java.home")).append(':').append(System.getProperty("java.runtime.version"));
+			} else if (ClassParser.isArchive(entry)) {
+				File file = new File(entry);
+				sb.append(':').append(file.length()).append(':').append(file.lastModified());
+			}
+			sb.append(';');
+		}
+		return sb.toString();
+	}
+
+	private void loadIndex() {
+		if (this.indexPath == null || !Files.isRegularFile(this.indexPath)) {
+			return;
+		}
+		try (InputStream fileIn = Files.newInputStream(this.indexPath);
+			 DataInputStream in = new DataInputStream(new BufferedInputStream(fileIn))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(this.fingerprint)) {
+				return;
+			}
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String internalName = in.readUTF();
+				if (!in.readBoolean()) {
+					this.headers.put(internalName, null);
+					continue;
+				}
+				int access = in.readInt();
+				String superName = in.readBoolean() ? in.readUTF() : null;
+				String[] interfaces = new String[in.readUnsignedShort()];
+				for (int j = 0; j < interfaces.length; j++) {
+					interfaces[j] = in.readUTF();
+				}
+				this.headers.put(internalName, new Header(access, superName, interfaces));
+			}
+		} catch (IOException | RuntimeException e) {
+			System.err.format("Ignoring unreadable classpath index %s (%s)\n", this.indexPath, e);
+			this.headers.clear();
+		}
+	}
+
+	private void writeIndex() {
+		try {
+			Path parent = this.indexPath.toAbsolutePath().getParent();
+			Files.createDirectories(parent);
+			Path tmp = Files.createTempFile(parent, this.indexPath.getFileName().toString(), ".tmp");
+			try (OutputStream fileOut = Files.newOutputStream(tmp);
+				 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeUTF(this.fingerprint);
+				out.writeInt(this.headers.size() - this.unsavedLookups.size());
+				for (Map.Entry<String, Header> e : this.headers.entrySet()) {
+					if (this.unsavedLookups.contains(e.getKey())) {
+						continue;
+					}
+					out.writeUTF(e.getKey());
+					Header header = e.getValue();
+					out.writeBoolean(header != null);
+					if (header == null) {
+						continue;
+					}
+					out.writeInt(header.access);
+					out.writeBoolean(header.superName != null);
+					if (header.superName != null) {
+						out.writeUTF(header.superName);
+					}
+					out.writeShort(header.interfaces.length);
+					for (String interfaceName : header.interfaces) {
+						out.writeUTF(interfaceName);
+					}
+				}
+			}
+			Files.move(tmp, this.indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.format("Failed to write classpath index %s (%s)\n", this.indexPath, e);
+		}
+	}
+
+	private static class Header {
+
+		private int access;
+		private String superName;
+		private String[] interfaces;
+
+		Header(int access, String superName, String[] interfaces) {
+			this.access = access;
+			this.superName = superName;
+			this.interfaces = interfaces;
+		}
+	}
+
+}
@@ -0,0 +1,119 @@
+package DataSource;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the size and modification time of every class file parsed in the previous run,
+ * together with its parse cache key. A class file whose size and modification time have not
+ * changed is then loaded from the parse cache without reading and hashing its bytes first.
+ *
+ * Only the files looked up in this run are written back, so files that are gone drop out.
+ */
+public class FileManifest {
+
+	private static final int MAGIC = 0x4A4C464D;
+	private static final int FORMAT_VERSION = 1;
+
+	private Path manifestPath;
+	private Map<String, Entry> previousEntries;
+	private Map<String, Entry> entries;
+
+	public FileManifest(String manifestPath) {
+		this.manifestPath = Paths.get(manifestPath);
+		this.previousEntries = new HashMap<>();
+		this.entries = new ConcurrentHashMap<>();
+		load();
+	}
+
+	/**
+	 * Returns the parse cache key recorded for the file, or null if the file is new or changed.
+	 */
+	public String getCacheKey(Path file, long size, long lastModified) {
+		String path = file.toAbsolutePath().toString();
+		Entry entry = this.previousEntries.get(path);
+		if (entry == null || entry.size != size || entry.lastModified != lastModified) {
+			return null;
+		}
+		this.entries.put(path, entry);
+		return entry.cacheKey;
+	}
+
+	public void put(Path file, long size, long lastModified, String cacheKey) {
+		this.entries.put(file.toAbsolutePath().toString(), new Entry(size, lastModified, cacheKey));
+	}
+
+	/**
+	 * Writes to a temporary file first and then moves it into place, like ParseCache.store.
+	 */
+	public void save() {
+		try {
+			Path parent = this.manifestPath.toAbsolutePath().getParent();
+			Files.createDirectories(parent);
+			Path tmp = Files.createTempFile(parent, this.manifestPath.getFileName().toString(), ".tmp");
+			try (OutputStream fileOut = Files.newOutputStream(tmp);
+				 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeInt(ClassDataSerializer.FORMAT_VERSION);
+				out.writeInt(this.entries.size());
+				for (Map.Entry<String, Entry> e : this.entries.entrySet()) {
+					out.writeUTF(e.getKey());
+					out.writeLong(e.getValue().size);
+					out.writeLong(e.getValue().lastModified);
+					out.writeUTF(e.getValue().cacheKey);
+				}
+			}
+			Files.move(tmp, this.manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.format("Failed to write file manifest %s (%s)\n", this.manifestPath, e);
+		}
+	}
+
+	// cache keys depend on the serializer format, so a manifest of another format is not used
+	private void load() {
+		if (!Files.isRegularFile(this.manifestPath)) {
+			return;
+		}
+		try (InputStream fileIn = Files.newInputStream(this.manifestPath);
+			 DataInputStream in = new DataInputStream(new BufferedInputStream(fileIn))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || in.readInt() != ClassDataSerializer.FORMAT_VERSION) {
+				return;
+			}
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String path = in.readUTF();
+				this.previousEntries.put(path, new Entry(in.readLong(), in.readLong(), in.readUTF()));
+			}
+		} catch (IOException | RuntimeException e) {
+			System.err.format("Ignoring unreadable file manifest %s (%s)\n", this.manifestPath, e);
+			this.previousEntries.clear();
+		}
+	}
+
+	private static class Entry {
+
+		private long size;
+		private long lastModified;
+		private String cacheKey;
+
+		Entry(long size, long lastModified, String cacheKey) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.cacheKey = cacheKey;
+		}
+	}
+
+}
@@ -0,0 +1,27 @@
+package DataSource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Turns the growable lists used while parsing into unmodifiable lists of exactly the right size.
+ */
+final class FrozenLists {
+
+	private FrozenLists() {
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> List<T> freeze(List<T> list) {
+		switch (list.size()) {
+		case 0:
+			return Collections.emptyList();
+		case 1:
+			return Collections.singletonList(list.get(0));
+		default:
+			return (List<T>) Collections.unmodifiableList(Arrays.asList(list.toArray()));
+		}
+	}
+
+}
@@ -0,0 +1,40 @@
+package DataSource;
+
+import java.util.List;
+
+/**
+ * The generic parameter, return and exception types of a method, parsed from its Signature
+ * attribute. Formal type parameters like <T extends Comparable<T>> are not part of the model.
+ * The exception types are only in the signature when one of them is a type variable.
+ * Instances are immutable and shared, see SymbolTable.getGenericMethodSignature.
+ */
+public class GenericMethodSignature {
+
+	private List<GenericType> parameterTypes;
+	private GenericType returnType;
+	private List<GenericType> exceptionTypes;
+
+	GenericMethodSignature(List<GenericType> parameterTypes, GenericType returnType, List<GenericType> exceptionTypes) {
+		this.parameterTypes = FrozenLists.freeze(parameterTypes);
+		this.returnType = returnType;
+		this.exceptionTypes = FrozenLists.freeze(exceptionTypes);
+	}
+
+	public List<GenericType> getParameterTypes() {
+		return this.parameterTypes;
+	}
+
+	public GenericType getReturnType() {
+		return this.returnType;
+	}
+
+	public List<GenericType> getExceptionTypes() {
+		return this.exceptionTypes;
+	}
+
+	@Override
+	public String toString() {
+		return this.parameterTypes + " -> " + this.returnType;
+	}
+
+}
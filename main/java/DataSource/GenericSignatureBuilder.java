@@ -0,0 +1,177 @@
+package DataSource;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.signature.SignatureReader;
+import org.objectweb.asm.signature.SignatureVisitor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds GenericType and GenericMethodSignature from signature strings with ASM's SignatureReader.
+ * Use SymbolTable.getGenericType and getGenericMethodSignature, which keep the results.
+ */
+final class GenericSignatureBuilder {
+
+	private GenericSignatureBuilder() {
+	}
+
+	static GenericType buildType(String signature) {
+		TypeBuilder builder = new TypeBuilder();
+		new SignatureReader(signature).acceptType(builder);
+		return builder.build();
+	}
+
+	static GenericMethodSignature buildMethodSignature(String signature) {
+		MethodSignatureBuilder builder = new MethodSignatureBuilder();
+		new SignatureReader(signature).accept(builder);
+		return builder.build();
+	}
+
+	/**
+	 * Receives exactly one type. Array dimensions are counted on the same builder,
+	 * the way SignatureReader reports them.
+	 */
+	private static class TypeBuilder extends SignatureVisitor {
+
+		private int arrayDimensions;
+		private GenericType type;
+		// while a class type is being read
+		private String className;
+		private GenericType ownerType;
+		private List<TypeBuilder> argumentBuilders = new ArrayList<>();
+		private List<Character> wildcards = new ArrayList<>();
+
+		TypeBuilder() {
+			super(Opcodes.ASM9);
+		}
+
+		@Override
+		public void visitBaseType(char descriptor) {
+			this.type = GenericType.primitive(SymbolTable.global().intern(Type.getType(String.valueOf(descriptor)).getClassName()),
+					this.arrayDimensions);
+		}
+
+		@Override
+		public void visitTypeVariable(String name) {
+			this.type = GenericType.typeVariable(SymbolTable.global().intern(name), this.arrayDimensions);
+		}
+
+		@Override
+		public SignatureVisitor visitArrayType() {
+			this.arrayDimensions++;
+			return this;
+		}
+
+		@Override
+		public void visitClassType(String name) {
+			this.className = name;
+		}
+
+		@Override
+		public void visitInnerClassType(String name) {
+			this.ownerType = GenericType.classType(SymbolTable.global().toClassName(this.className), takeTypeArguments(),
+					this.ownerType, 0);
+			this.className = this.className + "$" + name;
+		}
+
+		@Override
+		public void visitTypeArgument() {
+			this.argumentBuilders.add(null);
+			this.wildcards.add(SignatureVisitor.EXTENDS);
+		}
+
+		@Override
+		public SignatureVisitor visitTypeArgument(char wildcard) {
+			TypeBuilder argumentBuilder = new TypeBuilder();
+			this.argumentBuilders.add(argumentBuilder);
+			this.wildcards.add(wildcard);
+			return argumentBuilder;
+		}
+
+		@Override
+		public void visitEnd() {
+			this.type = GenericType.classType(SymbolTable.global().toClassName(this.className), takeTypeArguments(),
+					this.ownerType, this.arrayDimensions);
+		}
+
+		private List<GenericType> takeTypeArguments() {
+			List<GenericType> typeArguments = new ArrayList<>();
+			for (int i = 0; i < this.argumentBuilders.size(); i++) {
+				TypeBuilder argumentBuilder = this.argumentBuilders.get(i);
+				char wildcard = this.wildcards.get(i);
+				if (argumentBuilder == null) {
+					typeArguments.add(GenericType.wildcard(null, false));
+				} else if (wildcard == SignatureVisitor.INSTANCEOF) {
+					typeArguments.add(argumentBuilder.build());
+				} else {
+					typeArguments.add(GenericType.wildcard(argumentBuilder.build(), wildcard == SignatureVisitor.SUPER));
+				}
+			}
+			this.argumentBuilders.clear();
+			this.wildcards.clear();
+			return typeArguments;
+		}
+
+		GenericType build() {
+			return this.type;
+		}
+	}
+
+	private static class MethodSignatureBuilder extends SignatureVisitor {
+
+		private List<TypeBuilder> parameterBuilders = new ArrayList<>();
+		private TypeBuilder returnBuilder = new TypeBuilder();
+		private List<TypeBuilder> exceptionBuilders = new ArrayList<>();
+
+		MethodSignatureBuilder() {
+			super(Opcodes.ASM9);
+		}
+
+		// bounds of formal type parameters are read into builders that are thrown away
+
+		@Override
+		public SignatureVisitor visitClassBound() {
+			return new TypeBuilder();
+		}
+
+		@Override
+		public SignatureVisitor visitInterfaceBound() {
+			return new TypeBuilder();
+		}
+
+		@Override
+		public SignatureVisitor visitParameterType() {
+			TypeBuilder builder = new TypeBuilder();
+			this.parameterBuilders.add(builder);
+			return builder;
+		}
+
+		@Override
+		public SignatureVisitor visitReturnType() {
+			return this.returnBuilder;
+		}
+
+		@Override
+		public SignatureVisitor visitExceptionType() {
+			TypeBuilder builder = new TypeBuilder();
+			this.exceptionBuilders.add(builder);
+			return builder;
+		}
+
+		GenericMethodSignature build() {
+			return new GenericMethodSignature(buildAll(this.parameterBuilders), this.returnBuilder.build(),
+					buildAll(this.exceptionBuilders));
+		}
+
+		private static List<GenericType> buildAll(List<TypeBuilder> builders) {
+			List<GenericType> types = new ArrayList<>(builders.size());
+			for (TypeBuilder builder : builders) {
+				types.add(builder.build());
+			}
+			return types;
+		}
+	}
+
+}
@@ -0,0 +1,179 @@
+package DataSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A type as written in a generic signature, like java.util.Map<java.lang.String, ? extends T>[].
+ * Instances are immutable and shared between all fields and methods with the same signature,
+ * see SymbolTable.getGenericType.
+ */
+public class GenericType {
+
+	public enum Kind {
+		PRIMITIVE,
+		CLASS,
+		TYPE_VARIABLE,
+		/** A ? type argument, with or without a bound. */
+		WILDCARD
+	}
+
+	private Kind kind;
+	private String name;
+	private int arrayDimensions;
+	private List<GenericType> typeArguments;
+	private GenericType ownerType;
+	private GenericType bound;
+	private boolean lowerBound;
+
+	private GenericType(Kind kind, String name, int arrayDimensions) {
+		this.kind = kind;
+		this.name = name;
+		this.arrayDimensions = arrayDimensions;
+		this.typeArguments = Collections.emptyList();
+	}
+
+	static GenericType primitive(String name, int arrayDimensions) {
+		return new GenericType(Kind.PRIMITIVE, name, arrayDimensions);
+	}
+
+	static GenericType typeVariable(String name, int arrayDimensions) {
+		return new GenericType(Kind.TYPE_VARIABLE, name, arrayDimensions);
+	}
+
+	/**
+	 * @param ownerType the enclosing class with its own type arguments, for Outer<T>.Inner; else null
+	 */
+	static GenericType classType(String name, List<GenericType> typeArguments, GenericType ownerType, int arrayDimensions) {
+		GenericType type = new GenericType(Kind.CLASS, name, arrayDimensions);
+		type.typeArguments = FrozenLists.freeze(typeArguments);
+		type.ownerType = ownerType;
+		return type;
+	}
+
+	/**
+	 * @param bound null for an unbounded ?
+	 * @param lowerBound true for ? super bound, false for ? extends bound
+	 */
+	static GenericType wildcard(GenericType bound, boolean lowerBound) {
+		GenericType type = new GenericType(Kind.WILDCARD, "?", 0);
+		type.bound = bound;
+		type.lowerBound = lowerBound;
+		return type;
+	}
+
+	public Kind getKind() {
+		return this.kind;
+	}
+
+	/**
+	 * The dotted class name (java.util.Map, java.util.Map$Entry), primitive name,
+	 * type variable name, or ? for a wildcard. Array dimensions are not part of the name.
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	public int getArrayDimensions() {
+		return this.arrayDimensions;
+	}
+
+	public List<GenericType> getTypeArguments() {
+		return this.typeArguments;
+	}
+
+	public GenericType getOwnerType() {
+		return this.ownerType;
+	}
+
+	/**
+	 * The bound of a wildcard, null for an unbounded one or any other kind of type.
+	 */
+	public GenericType getBound() {
+		return this.bound;
+	}
+
+	public boolean isLowerBound() {
+		return this.lowerBound;
+	}
+
+	/**
+	 * The erased name with array brackets, as SymbolTable.getTypeName gives for a descriptor.
+	 * For a type variable this is the variable name, for a wildcard ?.
+	 */
+	public String getTypeName() {
+		if (this.arrayDimensions == 0) {
+			return this.name;
+		}
+		StringBuilder sb = new StringBuilder(this.name);
+		for (int i = 0; i < this.arrayDimensions; i++) {
+			sb.append("[]");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * The type names (see getTypeName) of every class used in the type arguments, at any depth
+	 * and including wildcard bounds, in the order they appear. Type variables are left out.
+	 */
+	public List<String> getTypeArgumentClassNames() {
+		List<String> names = new ArrayList<>();
+		collectTypeArgumentClassNames(names);
+		return names;
+	}
+
+	private void collectTypeArgumentClassNames(List<String> names) {
+		if (this.ownerType != null) {
+			this.ownerType.collectTypeArgumentClassNames(names);
+		}
+		for (GenericType argument : this.typeArguments) {
+			GenericType type = argument.kind == Kind.WILDCARD ? argument.bound : argument;
+			if (type == null) {
+				continue;
+			}
+			if (type.kind == Kind.CLASS || type.kind == Kind.PRIMITIVE) {
+				names.add(SymbolTable.global().intern(type.getTypeName()));
+			}
+			type.collectTypeArgumentClassNames(names);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		appendTo(sb);
+		return sb.toString();
+	}
+
+	private void appendTo(StringBuilder sb) {
+		if (this.kind == Kind.WILDCARD) {
+			sb.append('?');
+			if (this.bound != null) {
+				sb.append(this.lowerBound ? " super " : " extends ");
+				this.bound.appendTo(sb);
+			}
+			return;
+		}
+		if (this.ownerType != null) {
+			this.ownerType.appendTo(sb);
+			sb.append('.').append(this.name, this.name.lastIndexOf('$') + 1, this.name.length());
+		} else {
+			sb.append(this.name);
+		}
+		if (!this.typeArguments.isEmpty()) {
+			sb.append('<');
+			for (int i = 0; i < this.typeArguments.size(); i++) {
+				if (i > 0) {
+					sb.append(", ");
+				}
+				this.typeArguments.get(i).appendTo(sb);
+			}
+			sb.append('>');
+		}
+		for (int i = 0; i < this.arrayDimensions; i++) {
+			sb.append("[]");
+		}
+	}
+
+}
@@ -1,59 +1,53 @@
 package DataSource;
 
 import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.tree.AbstractInsnNode;
-import org.objectweb.asm.tree.FieldInsnNode;
-import org.objectweb.asm.tree.LdcInsnNode;
-import org.objectweb.asm.tree.MethodInsnNode;
-import org.objectweb.asm.tree.VarInsnNode;
 
+/**
+ * Builds the InstructionData objects handed out by MethodData.getInstructions().
+ */
 public class InstructionParser {
 
-    public InstructionData parseInstructionData(AbstractInsnNode insNode) {
-        if (insNode instanceof MethodInsnNode) {
-            MethodInsnNode methodInsNode = (MethodInsnNode) insNode;
-            MethodCallInstruction insData = new MethodCallInstruction(InstructionType.METHOD_CALL, methodInsNode.name, this.getFriendlyName(methodInsNode.owner));
-
-            if(methodInsNode.getPrevious() instanceof VarInsnNode && ((VarInsnNode)methodInsNode.getPrevious()).var == 0) {
-                insData.setInstructionType(InstructionType.SELF_METHOD_CALL);
-            }
-
-            if(insNode.getPrevious() instanceof FieldInsnNode) {
-                insData.setVarName(((FieldInsnNode)insNode.getPrevious()).name);
-            }
-
-            return insData;
-            
-        } else if (insNode instanceof VarInsnNode) {
-            VarInsnNode varIns = (VarInsnNode) insNode;
-            int opcode = insNode.getOpcode();
-            InstructionData insData;
-
-            if (opcode <= 53 && opcode >= 21) {
-                insData = new VarInstruction(InstructionType.VAR_INS, varIns.var, "LOAD");
-            } else if (opcode <= 86 && opcode >= 22) {
-                insData = new VarInstruction(InstructionType.VAR_INS, varIns.var, "STORE");
-            } else {
-                insData = new VarInstruction(InstructionType.VAR_INS, varIns.var, "unknown");
-            }
-            //System.out.println(insNode.getOpcode());
-            return insData;
-        } else if (insNode.getOpcode() > 0 && insNode.getOpcode() <= 20){
-        	int opcode = insNode.getOpcode();
-        	if (opcode == Opcodes.LDC) {
-        		Object cst = ((LdcInsnNode) insNode).cst;
-        		if (cst instanceof String) {
-        			return new LoadConstInstruction(opcode, (String) cst);
-        		}
-        	}
-            return new LoadConstInstruction(insNode.getOpcode());
+    /**
+     * @param previousLoadsThis whether the instruction right before the call loads local 0
+     * @param previousFieldName name of the field read right before the call, or null
+     */
+    public InstructionData parseMethodCallInstruction(String owner, String name, boolean previousLoadsThis, String previousFieldName) {
+        MethodCallInstruction insData = new MethodCallInstruction(InstructionType.METHOD_CALL, SymbolTable.global().intern(name), this.getFriendlyName(owner));
+
+        if (previousLoadsThis) {
+            insData.setInstructionType(InstructionType.SELF_METHOD_CALL);
+        }
+
+        if (previousFieldName != null) {
+            insData.setVarName(SymbolTable.global().intern(previousFieldName));
+        }
+
+        return insData;
+    }
+
+    public InstructionData parseVarInstruction(int opcode, int var) {
+        InstructionData insData;
+
+        if (opcode <= 53 && opcode >= 21) {
+            insData = new VarInstruction(InstructionType.VAR_INS, var, "LOAD");
+        } else if (opcode <= 86 && opcode >= 22) {
+            insData = new VarInstruction(InstructionType.VAR_INS, var, "STORE");
         } else {
-            return null;
+            insData = new VarInstruction(InstructionType.VAR_INS, var, "unknown");
+        }
+        //System.out.println(insNode.getOpcode());
+        return insData;
+    }
+
+    public InstructionData parseLoadConstInstruction(int opcode, Object cst) {
+        if (opcode == Opcodes.LDC && cst instanceof String) {
+            return new LoadConstInstruction(opcode, (String) cst);
         }
+        return new LoadConstInstruction(opcode);
     }
 
     private String getFriendlyName(String name) {
-        return name.replace('/', '.');
+        return SymbolTable.global().toClassName(name);
     }
 
 
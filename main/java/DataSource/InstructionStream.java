@@ -0,0 +1,275 @@
+package DataSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.objectweb.asm.Opcodes;
+
+/**
+ * The instructions of one method held in parallel arrays, one slot per bytecode instruction.
+ * Labels, line numbers and frames are not stored.
+ *
+ * What the operand slot holds depends on the instruction:
+ *  - variable loads/stores, RET and IINC: the local variable index
+ *  - LDC of a String: symbol id of the constant, NO_SYMBOL for other constants
+ *  - BIPUSH/SIPUSH: the pushed value
+ *  - field and method instructions: symbol id of the owner (dotted class name)
+ *  - NEW, ANEWARRAY, CHECKCAST, INSTANCEOF, MULTIANEWARRAY: symbol id of the type
+ *  - jumps: index of the target instruction
+ * Field, method and invokedynamic instructions also keep the symbol ids of the member name and descriptor.
+ *
+ * Symbol ids refer to SymbolTable.global(). Reading the stream allocates nothing.
+ */
+public class InstructionStream {
+
+	public static final int NO_SYMBOL = -1;
+
+	/** The instruction kinds that MethodData.getInstructions() has always returned. */
+	public static final Set<InstructionType> CALL_VAR_CONST_TYPES = EnumSet.of(
+			InstructionType.METHOD_CALL, InstructionType.SELF_METHOD_CALL, InstructionType.VAR_INS, InstructionType.LOAD_CONST);
+
+	public static final InstructionStream EMPTY = new InstructionStream(0);
+
+	static final int FLAG_AFTER_LOCAL_0 = 1;
+	static final int FLAG_AFTER_FIELD_INS = 2;
+
+	private static final InstructionType[] TYPES_BY_OPCODE = new InstructionType[256];
+	static {
+		Arrays.fill(TYPES_BY_OPCODE, InstructionType.UNKNOWN);
+		for (int opcode = Opcodes.ACONST_NULL; opcode <= 20; opcode++) {
+			TYPES_BY_OPCODE[opcode] = InstructionType.LOAD_CONST;
+		}
+		for (int opcode = Opcodes.ILOAD; opcode <= Opcodes.ALOAD; opcode++) {
+			TYPES_BY_OPCODE[opcode] = InstructionType.VAR_INS;
+		}
+		for (int opcode = Opcodes.ISTORE; opcode <= Opcodes.ASTORE; opcode++) {
+			TYPES_BY_OPCODE[opcode] = InstructionType.VAR_INS;
+		}
+		TYPES_BY_OPCODE[Opcodes.RET] = InstructionType.VAR_INS;
+		for (int opcode = Opcodes.IFEQ; opcode <= Opcodes.JSR; opcode++) {
+			TYPES_BY_OPCODE[opcode] = InstructionType.JUMP;
+		}
+		TYPES_BY_OPCODE[Opcodes.IFNULL] = InstructionType.JUMP;
+		TYPES_BY_OPCODE[Opcodes.IFNONNULL] = InstructionType.JUMP;
+		for (int opcode = Opcodes.GETSTATIC; opcode <= Opcodes.PUTFIELD; opcode++) {
+			TYPES_BY_OPCODE[opcode] = InstructionType.FIELD_INS;
+		}
+		for (int opcode = Opcodes.INVOKEVIRTUAL; opcode <= Opcodes.INVOKEINTERFACE; opcode++) {
+			TYPES_BY_OPCODE[opcode] = InstructionType.METHOD_CALL;
+		}
+		TYPES_BY_OPCODE[Opcodes.INVOKEDYNAMIC] = InstructionType.INVOKE_DYNAMIC;
+		TYPES_BY_OPCODE[Opcodes.NEW] = InstructionType.TYPE_INS;
+		TYPES_BY_OPCODE[Opcodes.ANEWARRAY] = InstructionType.TYPE_INS;
+		TYPES_BY_OPCODE[Opcodes.CHECKCAST] = InstructionType.TYPE_INS;
+		TYPES_BY_OPCODE[Opcodes.INSTANCEOF] = InstructionType.TYPE_INS;
+		TYPES_BY_OPCODE[Opcodes.MULTIANEWARRAY] = InstructionType.TYPE_INS;
+	}
+
+	private short[] opcodes;
+	private byte[] flags;
+	private int[] operands;
+	private int[] memberNames;
+	private int[] memberDescriptors;
+	private int size;
+
+	public InstructionStream(int capacity) {
+		this.opcodes = new short[capacity];
+		this.flags = new byte[capacity];
+		this.operands = new int[capacity];
+		this.memberNames = new int[capacity];
+		this.memberDescriptors = new int[capacity];
+	}
+
+	public InstructionStream() {
+		this(16);
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public int getOpcode(int index) {
+		return this.opcodes[index];
+	}
+
+	public InstructionType getType(int index) {
+		InstructionType type = TYPES_BY_OPCODE[this.opcodes[index]];
+		if (type == InstructionType.METHOD_CALL && (this.flags[index] & FLAG_AFTER_LOCAL_0) != 0) {
+			return InstructionType.SELF_METHOD_CALL;
+		}
+		return type;
+	}
+
+	public boolean isMethodCall(int index) {
+		return TYPES_BY_OPCODE[this.opcodes[index]] == InstructionType.METHOD_CALL;
+	}
+
+	public int getOperand(int index) {
+		return this.operands[index];
+	}
+
+	public int getVar(int index) {
+		return this.operands[index];
+	}
+
+	public boolean isLoad(int index) {
+		int opcode = this.opcodes[index];
+		return opcode >= Opcodes.ILOAD && opcode <= Opcodes.ALOAD;
+	}
+
+	public boolean isStore(int index) {
+		int opcode = this.opcodes[index];
+		return opcode >= Opcodes.ISTORE && opcode <= Opcodes.ASTORE;
+	}
+
+	/**
+	 * @return whether getOwner names a class: the owner of a called method or accessed field, or the type of a type instruction
+	 */
+	public boolean hasOwner(int index) {
+		return this.opcodes[index] != Opcodes.LDC && operandIsSymbol(this.opcodes[index]);
+	}
+
+	public String getOwner(int index) {
+		return SymbolTable.global().getSymbol(this.operands[index]);
+	}
+
+	public String getMemberName(int index) {
+		return SymbolTable.global().getSymbol(this.memberNames[index]);
+	}
+
+	public int getMemberNameId(int index) {
+		return this.memberNames[index];
+	}
+
+	public String getMemberDescriptor(int index) {
+		return SymbolTable.global().getSymbol(this.memberDescriptors[index]);
+	}
+
+	/**
+	 * @return the String pushed by an LDC, or null for any other constant
+	 */
+	public String getConstant(int index) {
+		return this.opcodes[index] == Opcodes.LDC ? SymbolTable.global().getSymbol(this.operands[index]) : null;
+	}
+
+	/**
+	 * @return the name of the field read or written right before this instruction, or null
+	 */
+	public String getPreviousFieldName(int index) {
+		return (this.flags[index] & FLAG_AFTER_FIELD_INS) != 0 ? getMemberName(index - 1) : null;
+	}
+
+	int getFlags(int index) {
+		return this.flags[index];
+	}
+
+	/**
+	 * @return whether the operand slot of an instruction with this opcode holds a symbol id rather than a plain number
+	 */
+	static boolean operandIsSymbol(int opcode) {
+		InstructionType type = TYPES_BY_OPCODE[opcode];
+		return opcode == Opcodes.LDC || type == InstructionType.FIELD_INS || type == InstructionType.METHOD_CALL || type == InstructionType.TYPE_INS;
+	}
+
+	public int countOf(Set<InstructionType> types) {
+		int count = 0;
+		for (int i = 0; i < this.size; i++) {
+			if (types.contains(getType(i))) count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @return the positions of the instructions of the given kinds, in order
+	 */
+	public int[] indicesOf(Set<InstructionType> types) {
+		int[] indices = new int[countOf(types)];
+		int next = 0;
+		for (int i = 0; i < this.size; i++) {
+			if (types.contains(getType(i))) indices[next++] = i;
+		}
+		return indices;
+	}
+
+	public void add(int opcode, int flags, int operand, int memberName, int memberDescriptor) {
+		if (this.size == this.opcodes.length) {
+			int capacity = Math.max(16, this.size * 2);
+			this.opcodes = Arrays.copyOf(this.opcodes, capacity);
+			this.flags = Arrays.copyOf(this.flags, capacity);
+			this.operands = Arrays.copyOf(this.operands, capacity);
+			this.memberNames = Arrays.copyOf(this.memberNames, capacity);
+			this.memberDescriptors = Arrays.copyOf(this.memberDescriptors, capacity);
+		}
+		this.opcodes[this.size] = (short) opcode;
+		this.flags[this.size] = (byte) flags;
+		this.operands[this.size] = operand;
+		this.memberNames[this.size] = memberName;
+		this.memberDescriptors[this.size] = memberDescriptor;
+		this.size++;
+	}
+
+	/**
+	 * Sets the bit of every symbol id this stream refers to, see SymbolTable.compact.
+	 */
+	public void collectSymbolIds(BitSet ids) {
+		for (int i = 0; i < this.size; i++) {
+			if (operandIsSymbol(this.opcodes[i]) && this.operands[i] != NO_SYMBOL) {
+				ids.set(this.operands[i]);
+			}
+			if (this.memberNames[i] != NO_SYMBOL) {
+				ids.set(this.memberNames[i]);
+			}
+			if (this.memberDescriptors[i] != NO_SYMBOL) {
+				ids.set(this.memberDescriptors[i]);
+			}
+		}
+	}
+
+	void setOperand(int index, int operand) {
+		this.operands[index] = operand;
+	}
+
+	/**
+	 * Shrinks the arrays to the number of instructions once the method has been read.
+	 */
+	public void trim() {
+		if (this.size != this.opcodes.length) {
+			this.opcodes = Arrays.copyOf(this.opcodes, this.size);
+			this.flags = Arrays.copyOf(this.flags, this.size);
+			this.operands = Arrays.copyOf(this.operands, this.size);
+			this.memberNames = Arrays.copyOf(this.memberNames, this.size);
+			this.memberDescriptors = Arrays.copyOf(this.memberDescriptors, this.size);
+		}
+	}
+
+	/**
+	 * Builds the method calls, variable instructions and constant loads as InstructionData objects,
+	 * which is what MethodData.getInstructions() used to store. Allocates one object per instruction.
+	 */
+	public List<InstructionData> toInstructionDataList(InstructionParser instParser) {
+		List<InstructionData> instructions = new ArrayList<>();
+		for (int i = 0; i < this.size; i++) {
+			switch (getType(i)) {
+				case METHOD_CALL:
+				case SELF_METHOD_CALL:
+					instructions.add(instParser.parseMethodCallInstruction(getOwner(i), getMemberName(i),
+							(this.flags[i] & FLAG_AFTER_LOCAL_0) != 0, getPreviousFieldName(i)));
+					break;
+				case VAR_INS:
+					instructions.add(instParser.parseVarInstruction(this.opcodes[i], this.operands[i]));
+					break;
+				case LOAD_CONST:
+					instructions.add(instParser.parseLoadConstInstruction(this.opcodes[i], getConstant(i)));
+					break;
+				default:
+					break;
+			}
+		}
+		return instructions;
+	}
+
+}
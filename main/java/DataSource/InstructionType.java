@@ -5,5 +5,9 @@ public enum InstructionType {
     SELF_METHOD_CALL,
     VAR_INS,
     LOAD_CONST,
+    FIELD_INS,
+    TYPE_INS,
+    JUMP,
+    INVOKE_DYNAMIC,
     UNKNOWN
 }
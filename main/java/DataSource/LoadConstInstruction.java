@@ -20,6 +20,10 @@ public class LoadConstInstruction extends InstructionData{
         return super.toString() + " " + this.type;
     }
     
+    public int getOpcode() {
+        return this.type;
+    }
+
     public String getConstVal() {
     	return this.constVal;
     }
@@ -0,0 +1,8 @@
+package DataSource;
+
+/**
+ * Fills in the instructions and local variables of a lazily loaded method.
+ */
+public interface MethodBodyDecoder {
+	void decode(MethodData methodData);
+}
@@ -0,0 +1,295 @@
+package DataSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Moves method bodies (instructions and local variables) out of the heap into a temporary file
+ * as classes are parsed, so that only class and method headers stay resident.
+ *
+ * The bodies of a class are paged back in together, the first time a check reads one of them.
+ * When the paged in classes take more than the memory budget, the classes paged in longest ago
+ * are paged out again: their bodies are released and read back from the file on next use.
+ * The budget is counted in bytes of what was spilled.
+ *
+ * Bodies that are not decoded yet (see StreamingClassParser with lazy bodies) are spilled as
+ * the class file they are decoded from, so spilling does not decode them.
+ *
+ * Paging out releases method bodies (see MethodData.releaseBody), so checks must read method
+ * bodies from one thread at a time, as CheckManager does. Spilling is safe from parser threads.
+ *
+ * The file only grows while classes are spilled. When classes are parsed again and replaced,
+ * as in watch mode, compact drops the bodies of the classes no longer in use.
+ */
+public class MethodBodySpill implements Closeable {
+
+	private ClassDataSerializer serializer;
+	private Path directory;
+	private FileChannel channel;
+	private long end;
+	// in file order
+	private List<SpilledClass> spilledClasses;
+	private long budget;
+	private long residentBytes;
+	// access ordered, so the first entry is the class paged in longest ago
+	private Map<SpilledClass, Boolean> residentClasses;
+
+	public MethodBodySpill(String directory, long budget) {
+		this.serializer = new ClassDataSerializer();
+		this.budget = budget;
+		this.residentClasses = new LinkedHashMap<>(16, 0.75f, true);
+		this.spilledClasses = new ArrayList<>();
+		this.directory = directory == null ? Paths.get(System.getProperty("java.io.tmpdir")) : Paths.get(directory);
+		this.channel = createFile();
+	}
+
+	private FileChannel createFile() {
+		try {
+			Files.createDirectories(this.directory);
+			Path file = Files.createTempFile(this.directory, "javalinter-bodies", ".bin");
+			return FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+					StandardOpenOption.DELETE_ON_CLOSE);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to create spill file in " + this.directory, e);
+		}
+	}
+
+	/**
+	 * Writes the method bodies of a parsed class to the spill file and drops them from memory.
+	 * Methods without a body (abstract, native, or empty) are left alone.
+	 */
+	public void spill(ClassData classData) {
+		for (MethodData methodData : classData.getMethods()) {
+			if (methodData.getUndecodedBody() instanceof ClassFileBodyDecoder) {
+				spillClassFile(classData, (ClassFileBodyDecoder) methodData.getUndecodedBody());
+				return;
+			}
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		List<MethodData> methods = new ArrayList<>();
+		List<Integer> offsets = new ArrayList<>();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			for (MethodData methodData : classData.getMethods()) {
+				MethodData body = methodData.getDetachedBody();
+				if (body.getInstructionStream().size() == 0 && body.getLocalVariableSlotCount() == 0) {
+					continue;
+				}
+				methods.add(methodData);
+				offsets.add(out.size());
+				this.serializer.writeMethodBody(out, body);
+			}
+			offsets.add(out.size());
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to spill " + classData.getName(), e);
+		}
+		if (methods.isEmpty()) {
+			return;
+		}
+
+		SpilledClass spilledClass = append(classData, bytes.toByteArray(), methods, null);
+		for (int i = 0; i < methods.size(); i++) {
+			methods.get(i).setBodyDecoder(new SpilledMethod(spilledClass, offsets.get(i), offsets.get(i + 1)));
+		}
+	}
+
+	// the methods that decode from the class file move over to the spilled copy of it
+	private void spillClassFile(ClassData classData, ClassFileBodyDecoder classFile) {
+		List<MethodData> methods = new ArrayList<>();
+		for (MethodData methodData : classData.getMethods()) {
+			if (methodData.getUndecodedBody() == classFile) {
+				methods.add(methodData);
+			}
+		}
+		SpilledClass spilledClass = append(classData, classFile.getClassBytes(), methods, classFile);
+		MethodBodyDecoder decoder = new SpilledMethod(spilledClass, 0, spilledClass.length);
+		for (MethodData methodData : methods) {
+			methodData.setBodyDecoder(decoder);
+		}
+	}
+
+	/**
+	 * The size of the spill file in bytes, including the bodies of classes no longer in use.
+	 */
+	public synchronized long size() {
+		return this.end;
+	}
+
+	/**
+	 * Moves the bodies of the given classes to a new spill file and drops all others.
+	 * The bodies of a class that is not given can no longer be read afterwards.
+	 * Only call this while no check is running.
+	 */
+	public synchronized void compact(Set<ClassData> liveClasses) {
+		FileChannel compacted = createFile();
+		List<SpilledClass> kept = new ArrayList<>();
+		long position = 0;
+		try {
+			for (SpilledClass spilledClass : this.spilledClasses) {
+				if (!liveClasses.contains(spilledClass.classData)) {
+					if (this.residentClasses.remove(spilledClass) != null) {
+						this.residentBytes -= spilledClass.length;
+					}
+					spilledClass.position = -1;
+					continue;
+				}
+				long copied = 0;
+				while (copied < spilledClass.length) {
+					copied += this.channel.transferTo(spilledClass.position + copied, spilledClass.length - copied,
+							compacted.position(position + copied));
+				}
+				spilledClass.position = position;
+				position += spilledClass.length;
+				kept.add(spilledClass);
+			}
+		} catch (IOException e) {
+			try {
+				compacted.close();
+			} catch (IOException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+			throw new UncheckedIOException("Failed to compact spill file", e);
+		}
+		close();
+		this.channel = compacted;
+		this.end = position;
+		this.spilledClasses = kept;
+	}
+
+	@Override
+	public void close() {
+		try {
+			this.channel.close();
+		} catch (IOException e) {
+			System.err.format("Failed to delete spill file (%s)\n", e);
+		}
+	}
+
+	private synchronized SpilledClass append(ClassData classData, byte[] data, List<MethodData> methods,
+											 ClassFileBodyDecoder classFile) {
+		long position = this.end;
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		try {
+			while (buffer.hasRemaining()) {
+				this.channel.write(buffer, position + buffer.position());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to write spill file", e);
+		}
+		this.end += data.length;
+		SpilledClass spilledClass = new SpilledClass(classData, position, data.length, methods, classFile);
+		this.spilledClasses.add(spilledClass);
+		return spilledClass;
+	}
+
+	private synchronized byte[] pageIn(SpilledClass spilledClass) {
+		this.residentClasses.put(spilledClass, Boolean.TRUE);
+		if (spilledClass.page != null) {
+			return spilledClass.page;
+		}
+		if (spilledClass.position < 0) {
+			this.residentClasses.remove(spilledClass);
+			throw new IllegalStateException("Spilled bodies of " + spilledClass.classData.getName() + " were dropped by compact");
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(spilledClass.length);
+		try {
+			while (buffer.hasRemaining()) {
+				if (this.channel.read(buffer, spilledClass.position + buffer.position()) < 0) {
+					throw new IOException("Unexpected end of spill file");
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read spill file", e);
+		}
+		spilledClass.page = buffer.array();
+		this.residentBytes += spilledClass.length;
+
+		Iterator<SpilledClass> it = this.residentClasses.keySet().iterator();
+		while (this.residentBytes > this.budget && this.residentClasses.size() > 1) {
+			SpilledClass eldest = it.next();
+			it.remove();
+			eldest.pageOut();
+			this.residentBytes -= eldest.length;
+		}
+		return spilledClass.page;
+	}
+
+	private class SpilledClass {
+
+		private ClassData classData;
+		// -1 once dropped by compact
+		private long position;
+		private int length;
+		private List<MethodData> methods;
+		// set when the page is a class file rather than serialized bodies
+		private boolean classFile;
+		private boolean readLocalVariables;
+		private byte[] page;
+
+		SpilledClass(ClassData classData, long position, int length, List<MethodData> methods, ClassFileBodyDecoder classFile) {
+			this.classData = classData;
+			this.position = position;
+			this.length = length;
+			this.methods = methods;
+			this.classFile = classFile != null;
+			this.readLocalVariables = classFile != null && classFile.readsLocalVariables();
+		}
+
+		void pageOut() {
+			this.page = null;
+			for (MethodData methodData : this.methods) {
+				methodData.releaseBody();
+			}
+		}
+	}
+
+	/**
+	 * The serialized body of one method, from offset to end in the page of its class,
+	 * or the whole class file for a class spilled undecoded.
+	 */
+	private class SpilledMethod implements MethodBodyDecoder {
+
+		private SpilledClass spilledClass;
+		private int offset;
+		private int end;
+
+		SpilledMethod(SpilledClass spilledClass, int offset, int end) {
+			this.spilledClass = spilledClass;
+			this.offset = offset;
+			this.end = end;
+		}
+
+		@Override
+		public void decode(MethodData methodData) {
+			byte[] data = pageIn(this.spilledClass);
+			if (this.spilledClass.classFile) {
+				new ClassFileBodyDecoder(data, this.spilledClass.readLocalVariables).decode(methodData);
+				return;
+			}
+			try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, this.offset, this.end - this.offset))) {
+				serializer.readMethodBody(in, methodData);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to read spilled body of " + methodData.getName(), e);
+			}
+		}
+	}
+
+}
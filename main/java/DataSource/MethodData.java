@@ -1,26 +1,47 @@
 package DataSource;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
+/**
+ * Once frozen the header of a method (name, modifiers, parameters) no longer changes.
+ * The body (local variables and instructions) is either set while parsing or decoded
+ * on first access under a lock; readers that find it loaded do not take the lock.
+ */
 public class MethodData {
 
+	private static final InstructionParser INSTRUCTION_PARSER = new InstructionParser();
+	private static final VariableData[] NO_LOCAL_VARIABLES = new VariableData[0];
+
 	private String methodName;
-	private List<AccessModifiers> modifiers;
-	private Map<Integer,VariableData> localVariables;
-	private List<InstructionData> instructions;
+	private Set<AccessModifiers> modifiers;
+	private VariableData[] localVariables;
+	// localVariables without the empty slots, built once the body is complete
+	private List<VariableData> localVariableList;
+	private InstructionStream instructionStream;
 	private List<String> params;
 	private String returnType;
 	private MethodType methodType;
+	private MethodBodyDecoder bodyDecoder;
+	private String descriptor;
+	private String signature;
+	private String key;
+	private String signatureText;
+	private volatile boolean bodyLoaded;
+	private boolean frozen;
 
 	public MethodData(String name) {
 		this.methodName = name;
-		this.modifiers = new LinkedList<>();
-		this.localVariables = new HashMap<>();
-		this.instructions = new ArrayList<>();
+		this.modifiers = EnumSet.noneOf(AccessModifiers.class);
+		this.localVariables = NO_LOCAL_VARIABLES;
+		this.instructionStream = InstructionStream.EMPTY;
+		this.bodyLoaded = true;
 		this.params = new LinkedList<>();
 		this.returnType = "";
 		this.methodType = MethodType.UNKNOWN;
@@ -42,15 +63,18 @@ public class MethodData {
 		this.modifiers.add(am);
 	}
 
+	/**
+	 * Local variables are stored in an array indexed by slot, sized to the highest slot seen.
+	 */
 	public void addLocalVariable(int index, VariableData varData) {
-		this.localVariables.put(index, varData);
+		if (index >= this.localVariables.length) {
+			this.localVariables = Arrays.copyOf(this.localVariables, index + 1);
+		}
+		this.localVariables[index] = varData.freeze();
+		this.localVariableList = null;
 	}
 	
 
-	public void addInstruction(InstructionData insData) {
-		this.instructions.add(insData);
-	}
-
 	public void addParameter(String paramType) {
 		this.params.add(paramType);
 	}
@@ -59,16 +83,186 @@ public class MethodData {
 		return this.methodName;
 	}
 
-	public List<AccessModifiers> getModifiers() {
+	public Set<AccessModifiers> getModifiers() {
 		return this.modifiers;
 	}
 
-	public Map<Integer,VariableData> getLocalVariables() {
-		return this.localVariables;
+	/**
+	 * The local variables of this method in slot order. The list is read-only and, once the
+	 * method is frozen, shared between calls.
+	 */
+	public List<VariableData> getLocalVariables() {
+		loadBody();
+		List<VariableData> list = this.localVariableList;
+		return list != null ? list : buildLocalVariableList();
+	}
+
+	private List<VariableData> buildLocalVariableList() {
+		List<VariableData> result = new ArrayList<>(this.localVariables.length);
+		for (VariableData varData : this.localVariables) {
+			if (varData != null) {
+				result.add(varData);
+			}
+		}
+		return FrozenLists.freeze(result);
+	}
+
+	public int getLocalVariableSlotCount() {
+		loadBody();
+		return this.localVariables.length;
+	}
+
+	/**
+	 * Returns the local variable stored in the given slot, or null if there is none.
+	 */
+	public VariableData getLocalVariable(int slot) {
+		loadBody();
+		return slot >= 0 && slot < this.localVariables.length ? this.localVariables[slot] : null;
 	}
 
+	/**
+	 * Builds the method calls, variable instructions and constant loads of this method as objects.
+	 * Allocates on every call; checks should walk getInstructionStream() instead.
+	 */
 	public List<InstructionData> getInstructions() {
-		return this.instructions;
+		return getInstructionStream().toInstructionDataList(INSTRUCTION_PARSER);
+	}
+
+	public InstructionStream getInstructionStream() {
+		loadBody();
+		return this.instructionStream;
+	}
+
+	public void setInstructionStream(InstructionStream instructionStream) {
+		this.instructionStream = instructionStream;
+	}
+
+	/**
+	 * Defers decoding of the method body until its instructions or local variables are read.
+	 */
+	public void setBodyDecoder(MethodBodyDecoder bodyDecoder) {
+		this.bodyDecoder = bodyDecoder;
+		releaseBody();
+	}
+
+	public void setBodyDecoder(MethodBodyDecoder bodyDecoder, String descriptor) {
+		this.descriptor = descriptor;
+		setBodyDecoder(bodyDecoder);
+	}
+
+	// for MethodBodySpill, which keeps undecoded bodies undecoded
+	MethodBodyDecoder getUndecodedBody() {
+		return this.bodyLoaded ? null : this.bodyDecoder;
+	}
+
+	public void setDescriptor(String descriptor) {
+		this.descriptor = descriptor;
+	}
+
+	/**
+	 * @return the JVM descriptor like (Ljava/lang/String;)V, or null for methods not read from a class file
+	 */
+	public String getDescriptor() {
+		return descriptor;
+	}
+
+	/**
+	 * Name and descriptor, like equals(Ljava/lang/Object;)Z, which identify a method within its class.
+	 * Interned once the method is frozen, so keys can be compared and hashed cheaply.
+	 * Falls back to getSignature() when the descriptor is unknown.
+	 */
+	public String getKey() {
+		return this.frozen ? this.key : buildKey();
+	}
+
+	public void setSignatureAttribute(String signature) {
+		this.signature = signature;
+	}
+
+	/**
+	 * @return the generic signature, or null if the method is not generic or signatures were not parsed
+	 */
+	public String getSignatureAttribute() {
+		return signature;
+	}
+
+	/**
+	 * @return the parsed generic parameter, return and exception types, or null, see getSignatureAttribute
+	 */
+	public GenericMethodSignature getGenericSignature() {
+		return signature == null ? null : SymbolTable.global().getGenericMethodSignature(signature);
+	}
+
+	/**
+	 * Drops the decoded instructions and local variables of a lazily parsed method.
+	 * They are decoded again on the next access. Eagerly parsed methods are left untouched.
+	 * Only call this while no other thread is reading the method.
+	 */
+	public void releaseBody() {
+		if(this.bodyDecoder != null) {
+			this.bodyLoaded = false;
+			this.instructionStream = null;
+			this.localVariables = null;
+			this.localVariableList = null;
+		}
+	}
+
+	/**
+	 * Reads the body without keeping it: returns this method if its body is loaded, otherwise
+	 * a copy with the body decoded, which is dropped once the caller is done with it.
+	 * Unlike releaseBody this is safe while other threads read the method.
+	 */
+	public MethodData getDetachedBody() {
+		MethodBodyDecoder decoder = getUndecodedBody();
+		if(decoder == null) {
+			return this;
+		}
+		MethodData copy = new MethodData(this.methodName);
+		copy.descriptor = this.descriptor;
+		decoder.decode(copy);
+		return copy;
+	}
+
+	/**
+	 * Sets the bit of every symbol id the decoded body refers to, see SymbolTable.compact.
+	 * A body that is not loaded refers to none and is not decoded for this.
+	 */
+	public void collectSymbolIds(BitSet ids) {
+		if(this.bodyLoaded && this.instructionStream != null) {
+			this.instructionStream.collectSymbolIds(ids);
+		}
+	}
+
+	private void loadBody() {
+		if(this.bodyLoaded) {
+			return;
+		}
+		synchronized (this) {
+			if(!this.bodyLoaded) {
+				this.instructionStream = InstructionStream.EMPTY;
+				this.localVariables = NO_LOCAL_VARIABLES;
+				this.bodyDecoder.decode(this);
+				this.localVariableList = buildLocalVariableList();
+				this.bodyLoaded = true;
+			}
+		}
+	}
+
+	/**
+	 * Makes the header of this method read-only. The parameters become an exact-size list.
+	 */
+	public MethodData freeze() {
+		if(!this.frozen) {
+			this.params = FrozenLists.freeze(this.params);
+			this.modifiers = Collections.unmodifiableSet(this.modifiers);
+			if(this.bodyLoaded) {
+				this.localVariableList = buildLocalVariableList();
+			}
+			this.signatureText = SymbolTable.global().intern(buildSignature());
+			this.key = buildKey();
+			this.frozen = true;
+		}
+		return this;
 	}
 
 	public List<String> getParams() {
@@ -87,11 +281,22 @@ public class MethodData {
 		return this.params.size();
 	}
 
-	public void setInstructions(List<InstructionData> instList) {
-		this.instructions = instList;
+	/**
+	 * The method as it is shown in warnings, like boolean equals(java.lang.Object).
+	 * Built once when the method is frozen.
+	 */
+	public String getSignature() {
+		return this.frozen ? this.signatureText : buildSignature();
 	}
 
-	public String getSignature() {
+	private String buildKey() {
+		if(this.descriptor == null) {
+			return getSignature();
+		}
+		return SymbolTable.global().intern(this.methodName + this.descriptor);
+	}
+
+	private String buildSignature() {
 
 		StringBuilder sb = new StringBuilder();
 
@@ -0,0 +1,158 @@
+package DataSource;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Reads a method body into an InstructionStream and the local variable table of a MethodData.
+ * Used by every parser: the tree parser replays its MethodNode into it, the streaming parser
+ * and the lazy body decoders get it straight from ClassReader.
+ *
+ * Method calls remember whether the node right before them loaded or stored local 0 or was a
+ * field instruction. Labels, line numbers and frames count as nodes here, same as in the ASM tree.
+ */
+class MethodDataVisitor extends MethodVisitor {
+
+	private MethodData methodData;
+	private InstructionStream stream;
+	private SymbolTable symbols;
+	private int previousFlags;
+	private Map<Label, Integer> labelPositions;
+	private List<Label> jumpLabels;
+	private List<Integer> jumpPositions;
+	private boolean readLocalVariables;
+
+	MethodDataVisitor(MethodData methodData) {
+		this(methodData, true);
+	}
+
+	MethodDataVisitor(MethodData methodData, boolean readLocalVariables) {
+		super(Opcodes.ASM9);
+		this.methodData = methodData;
+		this.readLocalVariables = readLocalVariables;
+		this.stream = new InstructionStream();
+		this.symbols = SymbolTable.global();
+		this.labelPositions = new IdentityHashMap<>();
+		this.jumpLabels = new ArrayList<>();
+		this.jumpPositions = new ArrayList<>();
+	}
+
+	private void add(int opcode, int operand, int memberName, int memberDescriptor, int nextFlags) {
+		this.stream.add(opcode, this.previousFlags, operand, memberName, memberDescriptor);
+		this.previousFlags = nextFlags;
+	}
+
+	private void add(int opcode, int operand) {
+		add(opcode, operand, InstructionStream.NO_SYMBOL, InstructionStream.NO_SYMBOL, 0);
+	}
+
+	@Override
+	public void visitInsn(int opcode) {
+		add(opcode, 0);
+	}
+
+	@Override
+	public void visitIntInsn(int opcode, int operand) {
+		add(opcode, operand);
+	}
+
+	@Override
+	public void visitLdcInsn(Object value) {
+		add(Opcodes.LDC, value instanceof String ? this.symbols.getId((String) value) : InstructionStream.NO_SYMBOL);
+	}
+
+	@Override
+	public void visitVarInsn(int opcode, int var) {
+		add(opcode, var, InstructionStream.NO_SYMBOL, InstructionStream.NO_SYMBOL, var == 0 ? InstructionStream.FLAG_AFTER_LOCAL_0 : 0);
+	}
+
+	@Override
+	public void visitIincInsn(int var, int increment) {
+		add(Opcodes.IINC, var);
+	}
+
+	@Override
+	public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+		add(opcode, this.symbols.getId(this.symbols.toClassName(owner)), this.symbols.getId(name), this.symbols.getId(descriptor), InstructionStream.FLAG_AFTER_FIELD_INS);
+	}
+
+	@Override
+	public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+		add(opcode, this.symbols.getId(this.symbols.toClassName(owner)), this.symbols.getId(name), this.symbols.getId(descriptor), 0);
+	}
+
+	@Override
+	public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+		add(Opcodes.INVOKEDYNAMIC, InstructionStream.NO_SYMBOL, this.symbols.getId(name), this.symbols.getId(descriptor), 0);
+	}
+
+	@Override
+	public void visitTypeInsn(int opcode, String type) {
+		add(opcode, this.symbols.getId(this.symbols.toClassName(type)));
+	}
+
+	@Override
+	public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+		add(Opcodes.MULTIANEWARRAY, this.symbols.getId(this.symbols.getTypeName(descriptor)));
+	}
+
+	@Override
+	public void visitJumpInsn(int opcode, Label label) {
+		this.jumpLabels.add(label);
+		this.jumpPositions.add(this.stream.size());
+		add(opcode, -1);
+	}
+
+	@Override
+	public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+		add(Opcodes.TABLESWITCH, 0);
+	}
+
+	@Override
+	public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+		add(Opcodes.LOOKUPSWITCH, 0);
+	}
+
+	@Override
+	public void visitLabel(Label label) {
+		this.labelPositions.put(label, this.stream.size());
+		this.previousFlags = 0;
+	}
+
+	@Override
+	public void visitLineNumber(int line, Label start) {
+		this.previousFlags = 0;
+	}
+
+	@Override
+	public void visitFrame(int type, int numLocal, Object[] local, int numStack, Object[] stack) {
+		this.previousFlags = 0;
+	}
+
+	@Override
+	public void visitLocalVariable(String name, String descriptor, String signature, Label start, Label end, int index) {
+		if (!this.readLocalVariables) {
+			return;
+		}
+		this.methodData.addLocalVariable(index, new VariableData(this.symbols.intern(name), this.symbols.intern(descriptor)));
+	}
+
+	@Override
+	public void visitEnd() {
+		for (int i = 0; i < this.jumpLabels.size(); i++) {
+			Integer target = this.labelPositions.get(this.jumpLabels.get(i));
+			if (target != null) {
+				this.stream.setOperand(this.jumpPositions.get(i), target);
+			}
+		}
+		this.stream.trim();
+		this.methodData.setInstructionStream(this.stream);
+	}
+}
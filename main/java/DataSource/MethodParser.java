@@ -1,60 +1,79 @@
 package DataSource;
 
 import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.Type;
-import org.objectweb.asm.tree.AbstractInsnNode;
-import org.objectweb.asm.tree.LocalVariableNode;
 import org.objectweb.asm.tree.MethodNode;
 
 public class MethodParser {
 
-	private InstructionParser instParser;
+	private boolean readLocalVariables = true;
+	private boolean readSignatures = true;
 
-	public MethodParser() {
-		this.instParser = new InstructionParser();
+	/**
+	 * Whether method bodies get their local variable tables, see ModelFacet.LOCAL_VARIABLES.
+	 */
+	public void setReadLocalVariables(boolean readLocalVariables) {
+		this.readLocalVariables = readLocalVariables;
 	}
 
+	public boolean readsLocalVariables() {
+		return this.readLocalVariables;
+	}
+
+	/**
+	 * Whether methods get their generic signatures, see ModelFacet.SIGNATURES.
+	 */
+	public void setReadSignatures(boolean readSignatures) {
+		this.readSignatures = readSignatures;
+	}
 
 	public MethodData parseMethodData(MethodNode mn) {
-		MethodData methodData = new MethodData(mn.name);
-		String desc = mn.desc;
-		Type[] paramTypes = Type.getArgumentTypes(desc);
-		for (Type paramType: paramTypes) {
-			methodData.addParameter(paramType.getClassName());
+		MethodData methodData = parseMethodHeader(mn.access, mn.name, mn.desc, mn.signature);
+
+		if(methodData.getMethodType() == MethodType.ABSTRACT) {
+			return methodData;
+		}
+
+		mn.accept(new MethodDataVisitor(methodData, this.readLocalVariables));
+
+		methodData.setMethodType(MethodType.IMPLEMENTED);
+
+		return methodData;
+		
+	}
+
+	/**
+	 * Builds a MethodData from the method's access flags, descriptor and generic signature only.
+	 * Abstract methods come back with MethodType.ABSTRACT, everything else is left UNKNOWN
+	 * until its body has been parsed.
+	 */
+	public MethodData parseMethodHeader(int access, String name, String desc, String signature) {
+		SymbolTable symbols = SymbolTable.global();
+		MethodData methodData = new MethodData(symbols.intern(name));
+		methodData.setDescriptor(symbols.intern(desc));
+		for (String paramType: symbols.getArgumentTypeNames(desc)) {
+			methodData.addParameter(paramType);
 		}
 
-		methodData.setReturnType(Type.getReturnType(mn.desc).getClassName());
+		methodData.setReturnType(symbols.getReturnTypeName(desc));
+		if(signature != null && this.readSignatures) {
+			methodData.setSignatureAttribute(symbols.intern(signature));
+			// parsed now, while parsing is spread over threads
+			symbols.getGenericMethodSignature(signature);
+		}
 
-		if((mn.access & Opcodes.ACC_PUBLIC) != 0)
+		if((access & Opcodes.ACC_PUBLIC) != 0)
 			methodData.addModifier(AccessModifiers.PUBLIC);
-		if((mn.access & Opcodes.ACC_PRIVATE) != 0)
+		if((access & Opcodes.ACC_PRIVATE) != 0)
 			methodData.addModifier(AccessModifiers.PRIVATE);
-		if((mn.access & Opcodes.ACC_PROTECTED) != 0)
+		if((access & Opcodes.ACC_PROTECTED) != 0)
 			methodData.addModifier(AccessModifiers.PROTECTED);
-		if((mn.access & Opcodes.ACC_STATIC) != 0)
+		if((access & Opcodes.ACC_STATIC) != 0)
 			methodData.addModifier(AccessModifiers.STATIC);
 
-		if((mn.access & Opcodes.ACC_ABSTRACT) != 0) {
+		if((access & Opcodes.ACC_ABSTRACT) != 0) {
 			methodData.setMethodType(MethodType.ABSTRACT);
-			return methodData;
 		}
 
-		for (LocalVariableNode localVarNode: mn.localVariables) {
-//			System.out.println(localVarNode.name + " " + localVarNode.index);
-			VariableData var = new VariableData(localVarNode.name, localVarNode.desc);
-			methodData.addLocalVariable(localVarNode.index, var);
-		}
-		for (int i = 0; i < mn.instructions.size(); i++) {
-			AbstractInsnNode insNode = mn.instructions.get(i);
-			InstructionData insData = this.instParser.parseInstructionData(insNode);
-			if (insData != null) {
-				methodData.addInstruction(insData);
-			}
-		}
-
-		methodData.setMethodType(MethodType.IMPLEMENTED);
-
 		return methodData;
-		
 	}
 }
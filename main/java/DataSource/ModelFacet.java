@@ -0,0 +1,21 @@
+package DataSource;
+
+/**
+ * The parts of the model that can be left out when parsing, see ClassParser.setFacets.
+ * The class name, modifiers and class type are always parsed.
+ */
+public enum ModelFacet {
+	/** The super class and interfaces. Part of the class header, so always parsed as well. */
+	HIERARCHY,
+	FIELDS,
+	/**
+	 * Generic signatures of fields and methods, see VariableData.getGenericType and
+	 * MethodData.getGenericSignature. The classes in the type arguments of a field are
+	 * also listed in VariableData.getDataTypes.
+	 */
+	SIGNATURES,
+	/** Method names, modifiers, parameter and return types. */
+	METHODS,
+	INSTRUCTIONS,
+	LOCAL_VARIABLES
+}
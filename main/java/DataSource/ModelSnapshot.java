@@ -0,0 +1,197 @@
+package DataSource;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A single binary file holding the whole parsed model of a project.
+ *
+ * Layout: magic, format version, the position of the headers, then all method bodies one after
+ * the other, then the class count and the class and method headers of every class. Each method
+ * header stores the position and length of its body in the file. The bodies come first so that
+ * they go straight to the file instead of being held in memory; the header position is filled
+ * in last.
+ *
+ * Reading only builds the headers. The body region is mapped into memory in chunks of at most
+ * MAX_CHUNK bytes, so snapshots larger than a single mapping can be read, and method bodies stay
+ * in the mapped file until a check first asks for them. Loading a snapshot costs about as much
+ * as reading the class structure.
+ */
+public class ModelSnapshot {
+
+	private static final int MAGIC = 0x4A4C5350;
+	// a single mapping is limited to Integer.MAX_VALUE bytes
+	private static final long MAX_CHUNK = 1L << 30;
+	private static final long BODY_REGION = 16;
+
+	private ClassDataSerializer serializer;
+
+	public ModelSnapshot() {
+		this.serializer = new ClassDataSerializer();
+	}
+
+	public void write(String snapshotPath, Collection<ClassData> classes) {
+		try (FileChannel channel = FileChannel.open(Paths.get(snapshotPath), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+			out.writeInt(MAGIC);
+			out.writeInt(ClassDataSerializer.FORMAT_VERSION);
+			out.writeLong(0);
+
+			// each body goes through a small buffer to learn its length, then straight to the file
+			ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+			DataOutputStream body = new DataOutputStream(bodyBytes);
+			List<long[]> bodyRanges = new ArrayList<>();
+			long position = BODY_REGION;
+			for (ClassData classData : classes) {
+				for (MethodData methodData : classData.getMethods()) {
+					bodyBytes.reset();
+					this.serializer.writeMethodBody(body, methodData);
+					bodyBytes.writeTo(out);
+					bodyRanges.add(new long[] { position, bodyBytes.size() });
+					position += bodyBytes.size();
+				}
+			}
+
+			long headers = position;
+			out.writeInt(classes.size());
+			int method = 0;
+			for (ClassData classData : classes) {
+				this.serializer.writeClassHeader(out, classData);
+				out.writeInt(classData.getMethods().size());
+				for (MethodData methodData : classData.getMethods()) {
+					this.serializer.writeMethodHeader(out, methodData);
+					long[] range = bodyRanges.get(method++);
+					out.writeLong(range[0]);
+					out.writeInt((int) range[1]);
+				}
+			}
+			out.flush();
+
+			ByteBuffer headerPosition = ByteBuffer.allocate(8).putLong(0, headers);
+			while (headerPosition.hasRemaining()) {
+				channel.write(headerPosition, 8 + headerPosition.position());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to write model snapshot " + snapshotPath, e);
+		}
+	}
+
+	public List<ClassData> read(String snapshotPath) {
+		try (FileChannel channel = FileChannel.open(Paths.get(snapshotPath), StandardOpenOption.READ)) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+			if (in.readInt() != MAGIC) {
+				throw new RuntimeException("Not a model snapshot: " + snapshotPath);
+			}
+			if (in.readInt() != ClassDataSerializer.FORMAT_VERSION) {
+				throw new RuntimeException("Model snapshot was written by an incompatible version: " + snapshotPath);
+			}
+			long headers = in.readLong();
+			channel.position(headers);
+			in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+
+			int classCount = in.readInt();
+			List<ClassData> classes = new ArrayList<>(classCount);
+			List<MethodData> methods = new ArrayList<>();
+			List<long[]> bodyRanges = new ArrayList<>();
+			for (int i = 0; i < classCount; i++) {
+				ClassData classData = this.serializer.readClassHeader(in);
+				int methodCount = in.readInt();
+				for (int j = 0; j < methodCount; j++) {
+					MethodData methodData = this.serializer.readMethodHeader(in);
+					classData.addMethod(methodData);
+					methods.add(methodData);
+					bodyRanges.add(new long[] { in.readLong(), in.readInt() });
+				}
+				classes.add(classData.freeze());
+			}
+
+			// bodies were written in header order, so a chunk is a run of consecutive bodies
+			int first = 0;
+			while (first < methods.size()) {
+				long chunkStart = bodyRanges.get(first)[0];
+				int last = first + 1;
+				while (last < methods.size() && bodyRanges.get(last)[0] + bodyRanges.get(last)[1] - chunkStart <= MAX_CHUNK) {
+					last++;
+				}
+				long[] lastRange = bodyRanges.get(last - 1);
+				ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, lastRange[0] + lastRange[1] - chunkStart);
+				for (int i = first; i < last; i++) {
+					long[] range = bodyRanges.get(i);
+					methods.get(i).setBodyDecoder(new SnapshotBodyDecoder(chunk, (int) (range[0] - chunkStart), (int) range[1]));
+				}
+				first = last;
+			}
+
+			return classes;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read model snapshot " + snapshotPath, e);
+		}
+	}
+
+	private class SnapshotBodyDecoder implements MethodBodyDecoder {
+
+		private ByteBuffer buffer;
+		private int offset;
+		private int length;
+
+		SnapshotBodyDecoder(ByteBuffer buffer, int offset, int length) {
+			this.buffer = buffer;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public void decode(MethodData methodData) {
+			ByteBuffer body = this.buffer.duplicate();
+			body.limit(this.offset + this.length).position(this.offset);
+			try {
+				serializer.readMethodBody(new DataInputStream(new BufferInputStream(body)), methodData);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Corrupt method body in model snapshot", e);
+			}
+		}
+	}
+
+	/**
+	 * Reads straight from a (mapped) buffer without copying it to the heap first.
+	 */
+	private static class BufferInputStream extends InputStream {
+
+		private ByteBuffer buffer;
+
+		BufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (!this.buffer.hasRemaining()) {
+				return -1;
+			}
+			int n = Math.min(len, this.buffer.remaining());
+			this.buffer.get(b, off, n);
+			return n;
+		}
+	}
+
+}
@@ -0,0 +1,38 @@
+package DataSource;
+
+import java.util.List;
+
+/**
+ * Decides from its name alone whether a class is linted. A rule names a package and covers
+ * its subpackages too, so "com.example" covers "com.example.util.Strings". A class is linted
+ * when it is covered by an include rule (or there are none) and by no exclude rule.
+ */
+public class PackageFilter {
+
+	private List<String> includes;
+	private List<String> excludes;
+
+	public PackageFilter(List<String> includes, List<String> excludes) {
+		this.includes = includes;
+		this.excludes = excludes;
+	}
+
+	/**
+	 * @param className the user friendly (dotted) class name
+	 */
+	public boolean accepts(String className) {
+		return (this.includes.isEmpty() || coveredByAny(this.includes, className))
+				&& !coveredByAny(this.excludes, className);
+	}
+
+	private static boolean coveredByAny(List<String> packages, String className) {
+		for (String packageName : packages) {
+			if (className.length() > packageName.length() && className.startsWith(packageName)
+					&& className.charAt(packageName.length()) == '.') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
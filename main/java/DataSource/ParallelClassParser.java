@@ -0,0 +1,123 @@
+package DataSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parses a directory tree of class files on a work-stealing pool.
+ * The tree is listed on the pool (see ClassFileFinder), every class file becomes its own task,
+ * and results are joined back in directory listing order, so the returned list is the same as
+ * the one produced by ClassParser.recursivelyParseAllClassFilesInDirectory.
+ * A class file that fails to parse is reported and skipped instead of failing the run.
+ */
+public class ParallelClassParser {
+
+	private ClassParser classParser;
+	private ForkJoinPool pool;
+
+	public ParallelClassParser(ClassParser classParser, int threads) {
+		this.classParser = classParser;
+		this.pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+	}
+
+	public List<ClassData> parseAllClassFilesInDirectory(String directory) {
+		List<ClassData> classDataList = new LinkedList<>();
+		parseAllClassFilesInDirectory(directory, classDataList);
+		return classDataList;
+	}
+
+	public void parseAllClassFilesInDirectory(String directory, List<ClassData> classDataList) {
+		List<Path> classFiles = this.classParser.getClassFileFinder().findClassFiles(Paths.get(directory), this.pool);
+		List<ClassFileTask> tasks = new ArrayList<>();
+		for (Path classFile : classFiles) {
+			tasks.add(new ClassFileTask(classFile.toFile()));
+		}
+		for (ClassFileTask task : tasks) {
+			this.pool.execute(task);
+		}
+		for (ClassFileTask task : tasks) {
+			classDataList.addAll(task.join());
+		}
+	}
+
+	public void parseAllClassFilesInArchive(String archive, List<ClassData> classDataList) {
+		try (FileSystem fs = ClassParser.openArchive(archive)) {
+			List<ArchiveEntryTask> tasks = new ArrayList<>();
+			for (Path entry : ClassParser.listArchiveClassEntries(fs)) {
+				tasks.add(new ArchiveEntryTask(entry));
+			}
+			for (ArchiveEntryTask task : tasks) {
+				this.pool.execute(task);
+			}
+			for (ArchiveEntryTask task : tasks) {
+				classDataList.addAll(task.join());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to close archive " + archive, e);
+		}
+	}
+
+	public void parseAllClassFiles(String path, List<ClassData> classDataList) {
+		if (ClassParser.isArchive(path)) {
+			parseAllClassFilesInArchive(path, classDataList);
+		} else {
+			parseAllClassFilesInDirectory(path, classDataList);
+		}
+	}
+
+	public void shutdown() {
+		this.pool.shutdown();
+	}
+
+	@SuppressWarnings("serial")
+	private class ClassFileTask extends RecursiveTask<List<ClassData>> {
+
+		private File file;
+
+		ClassFileTask(File file) {
+			this.file = file;
+		}
+
+		@Override
+		protected List<ClassData> compute() {
+			List<ClassData> result = new ArrayList<>(1);
+			try {
+				result.add(classParser.parseClassData(this.file));
+			} catch (RuntimeException e) {
+				System.err.format("Failed to parse class file, skipping: %s (%s)\n", this.file, e);
+			}
+			return result;
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private class ArchiveEntryTask extends RecursiveTask<List<ClassData>> {
+
+		private Path entry;
+
+		ArchiveEntryTask(Path entry) {
+			this.entry = entry;
+		}
+
+		@Override
+		protected List<ClassData> compute() {
+			List<ClassData> result = new ArrayList<>(1);
+			try {
+				result.add(classParser.parseArchiveEntry(this.entry));
+			} catch (RuntimeException e) {
+				System.err.format("Failed to parse class file, skipping: %s (%s)\n", this.entry, e);
+			}
+			return result;
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+package DataSource;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * On-disk cache of parsed classes. Each entry is keyed by the SHA-256 of the class file
+ * bytes together with ClassDataSerializer.FORMAT_VERSION, so an unchanged class file is
+ * loaded from the cache instead of being run through ASM again.
+ * A missing, stale or unreadable entry is treated as a cache miss.
+ */
+public class ParseCache {
+
+	private Path cacheDirectory;
+	private ClassDataSerializer serializer;
+
+	public ParseCache(String cacheDirectory) {
+		this.cacheDirectory = Paths.get(cacheDirectory);
+		this.serializer = new ClassDataSerializer();
+	}
+
+	public ClassData load(String key) {
+		return load(key, false);
+	}
+
+	/**
+	 * With lazyBodies the entry is kept in memory and the method bodies are decoded from it
+	 * the first time they are read, like StreamingClassParser does with the class file.
+	 */
+	public ClassData load(String key, boolean lazyBodies) {
+		Path entry = getEntryPath(key);
+		if (!Files.isRegularFile(entry)) {
+			return null;
+		}
+
+		if (lazyBodies) {
+			try {
+				byte[] data = Files.readAllBytes(entry);
+				if (data.length < 4 || ByteBuffer.wrap(data).getInt() != ClassDataSerializer.FORMAT_VERSION) {
+					return null;
+				}
+				return this.serializer.readClassData(data, 4);
+			} catch (IOException | RuntimeException e) {
+				System.err.format("Ignoring unreadable parse cache entry %s (%s)\n", entry, e);
+				return null;
+			}
+		}
+
+		try (InputStream fileIn = Files.newInputStream(entry);
+			 DataInputStream in = new DataInputStream(new BufferedInputStream(fileIn))) {
+			if (in.readInt() != ClassDataSerializer.FORMAT_VERSION) {
+				return null;
+			}
+			return this.serializer.readClassData(in);
+		} catch (IOException | RuntimeException e) {
+			System.err.format("Ignoring unreadable parse cache entry %s (%s)\n", entry, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Writes to a temporary file first and then moves it into place, so parallel
+	 * parser workers and concurrent runs never see a half written entry.
+	 */
+	public void store(String key, ClassData classData) {
+		Path entry = getEntryPath(key);
+		try {
+			Files.createDirectories(entry.getParent());
+			Path tmp = Files.createTempFile(entry.getParent(), key, ".tmp");
+			try (OutputStream fileOut = Files.newOutputStream(tmp);
+				 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+				out.writeInt(ClassDataSerializer.FORMAT_VERSION);
+				this.serializer.writeClassData(out, classData);
+			}
+			Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.format("Failed to write parse cache entry %s (%s)\n", entry, e);
+		}
+	}
+
+	public String getKey(byte[] classBytes) {
+		return getContentKey(classBytes);
+	}
+
+	/**
+	 * A hash of the class file bytes, which also tells apart identical and differing copies
+	 * of a class, see ClassDeduplicator.
+	 */
+	public static String getContentKey(byte[] classBytes) {
+		return getContentKey(classBytes, classBytes.length);
+	}
+
+	public static String getContentKey(byte[] classBytes, int length) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update((byte) ClassDataSerializer.FORMAT_VERSION);
+			digest.update(classBytes, 0, length);
+			byte[] hash = digest.digest();
+			StringBuilder sb = new StringBuilder();
+			for (byte b : hash) {
+				sb.append(String.format("%02x", b));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("SHA-256 is not available", e);
+		}
+	}
+
+	private Path getEntryPath(String key) {
+		return this.cacheDirectory.resolve(key.substring(0, 2)).resolve(key + ".bin");
+	}
+
+}
@@ -0,0 +1,99 @@
+package DataSource;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A ClassParser that builds ClassData/MethodData in a single ClassVisitor pass
+ * instead of going through an intermediate ClassNode tree.
+ * Stack map frames are skipped since nothing in the model uses them.
+ * The produced model is the same as the one from ClassParser.
+ *
+ * With lazyBodies enabled only the class structure is read up front (SKIP_CODE);
+ * each method keeps a ClassFileBodyDecoder over the class bytes and decodes its
+ * instructions and local variables the first time a check asks for them.
+ */
+public class StreamingClassParser extends ClassParser {
+
+	private boolean lazyBodies;
+
+	public StreamingClassParser(boolean lazyBodies) {
+		this.lazyBodies = lazyBodies;
+	}
+
+	public StreamingClassParser() {
+		this(false);
+	}
+
+	@Override
+	protected boolean parsesLazily() {
+		return this.lazyBodies && parsesMethodBodies();
+	}
+
+	@Override
+	public ClassData parseClassData(byte[] arr, int length) {
+		ClassReader cr = new ClassReader(arr, 0, length);
+		boolean lazy = parsesLazily();
+		// the decoder outlives arr, which may be a reused read buffer
+		ClassDataVisitor visitor = new ClassDataVisitor(lazy ? new ClassFileBodyDecoder(Arrays.copyOf(arr, length),
+				this.methodParser.readsLocalVariables()) : null);
+		cr.accept(visitor, lazy ? ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES : getReaderFlags());
+
+		return visitor.classData;
+	}
+
+	private class ClassDataVisitor extends ClassVisitor {
+
+		private ClassData classData;
+		private MethodBodyDecoder bodyDecoder;
+
+		ClassDataVisitor(MethodBodyDecoder bodyDecoder) {
+			super(Opcodes.ASM9);
+			this.bodyDecoder = bodyDecoder;
+		}
+
+		@Override
+		public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+			this.classData = parseClassHeader(access, name, superName, new ArrayList<>(Arrays.asList(interfaces)));
+		}
+
+		@Override
+		public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+			if (!facets.contains(ModelFacet.FIELDS)) {
+				return null;
+			}
+			this.classData.addFieldVariable(parseFieldVariable(access, name, descriptor, signature));
+			return null;
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+			if (!facets.contains(ModelFacet.METHODS)) {
+				return null;
+			}
+			MethodData methodData = methodParser.parseMethodHeader(access, name, descriptor, signature);
+			this.classData.addMethod(methodData);
+
+			if (methodData.getMethodType() == MethodType.ABSTRACT) {
+				return null;
+			}
+
+			methodData.setMethodType(MethodType.IMPLEMENTED);
+			if (!parsesMethodBodies()) {
+				return null;
+			}
+			if (this.bodyDecoder != null) {
+				methodData.setBodyDecoder(this.bodyDecoder, descriptor);
+				return null;
+			}
+			return new MethodDataVisitor(methodData);
+		}
+	}
+
+}
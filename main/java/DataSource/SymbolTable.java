@@ -0,0 +1,222 @@
+package DataSource;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.objectweb.asm.Type;
+
+/**
+ * Owns one canonical String instance for every class, method, field and type name in the model.
+ * Names taken from class files are turned into their dotted form once and then looked up
+ * by their internal form or descriptor, so repeated names like java.lang.String are neither
+ * rebuilt nor duplicated on the heap. Since equal names are the same instance,
+ * String.equals between them returns on its identity check.
+ *
+ * Generic signatures are parsed once as well, into shared GenericType and GenericMethodSignature
+ * instances.
+ *
+ * Every symbol can also be given a dense integer id, which is how the compact
+ * instruction stream refers to owners, member names and descriptors.
+ * Ids are only valid within one run and must never be written to disk.
+ *
+ * The table only grows while parsing. A long running process that keeps parsing changed
+ * classes (like --watch) calls compact now and then to drop what is no longer used.
+ *
+ * The table is safe to use from the parallel parser.
+ */
+public class SymbolTable {
+
+	private static final SymbolTable GLOBAL = new SymbolTable();
+
+	private ConcurrentMap<String, String> symbols;
+	private ConcurrentMap<String, String> classNames;
+	private ConcurrentMap<String, String> typeNames;
+	private ConcurrentMap<String, String[]> argumentTypeNames;
+	private ConcurrentMap<String, String> returnTypeNames;
+	private ConcurrentMap<String, GenericType> genericTypes;
+	private ConcurrentMap<String, GenericMethodSignature> genericMethodSignatures;
+	private ConcurrentMap<String, Integer> ids;
+	private volatile String[] symbolsById;
+	private int nextId;
+	// ids given up by compact, handed out again before new ones
+	private int[] freeIds = new int[0];
+	private int freeIdCount;
+
+	public SymbolTable() {
+		this.symbols = new ConcurrentHashMap<>();
+		this.classNames = new ConcurrentHashMap<>();
+		this.typeNames = new ConcurrentHashMap<>();
+		this.argumentTypeNames = new ConcurrentHashMap<>();
+		this.returnTypeNames = new ConcurrentHashMap<>();
+		this.genericTypes = new ConcurrentHashMap<>();
+		this.genericMethodSignatures = new ConcurrentHashMap<>();
+		this.ids = new ConcurrentHashMap<>();
+		this.symbolsById = new String[1024];
+	}
+
+	public static SymbolTable global() {
+		return GLOBAL;
+	}
+
+	public String intern(String symbol) {
+		if (symbol == null) {
+			return null;
+		}
+		String canonical = this.symbols.putIfAbsent(symbol, symbol);
+		return canonical == null ? symbol : canonical;
+	}
+
+	/**
+	 * @param internalName a class name like java/lang/String (dotted names are accepted as well)
+	 * @return the canonical java.lang.String
+	 */
+	public String toClassName(String internalName) {
+		if (internalName == null) {
+			return null;
+		}
+		String className = this.classNames.get(internalName);
+		if (className == null) {
+			className = intern(internalName.replace('/', '.'));
+			this.classNames.putIfAbsent(internalName, className);
+		}
+		return className;
+	}
+
+	/**
+	 * @param descriptor a field or value descriptor like Ljava/lang/String; or [I
+	 * @return the canonical source name, e.g. java.lang.String or int[]
+	 */
+	public String getTypeName(String descriptor) {
+		String typeName = this.typeNames.get(descriptor);
+		if (typeName == null) {
+			typeName = intern(Type.getType(descriptor).getClassName());
+			this.typeNames.putIfAbsent(descriptor, typeName);
+		}
+		return typeName;
+	}
+
+	/**
+	 * @return the canonical type names of the parameters of a method descriptor. The array is shared, do not modify it.
+	 */
+	public String[] getArgumentTypeNames(String methodDescriptor) {
+		String[] names = this.argumentTypeNames.get(methodDescriptor);
+		if (names == null) {
+			Type[] argumentTypes = Type.getArgumentTypes(methodDescriptor);
+			names = new String[argumentTypes.length];
+			for (int i = 0; i < argumentTypes.length; i++) {
+				names[i] = getTypeName(argumentTypes[i].getDescriptor());
+			}
+			this.argumentTypeNames.putIfAbsent(methodDescriptor, names);
+		}
+		return names;
+	}
+
+	public String getReturnTypeName(String methodDescriptor) {
+		String name = this.returnTypeNames.get(methodDescriptor);
+		if (name == null) {
+			name = getTypeName(Type.getReturnType(methodDescriptor).getDescriptor());
+			this.returnTypeNames.putIfAbsent(methodDescriptor, name);
+		}
+		return name;
+	}
+
+	/**
+	 * @param signature a field signature like Ljava/util/List<+Ljava/lang/Number;>;
+	 * @return the shared generic type, parsed once per distinct signature
+	 */
+	public GenericType getGenericType(String signature) {
+		GenericType type = this.genericTypes.get(signature);
+		if (type == null) {
+			type = GenericSignatureBuilder.buildType(signature);
+			GenericType existing = this.genericTypes.putIfAbsent(signature, type);
+			type = existing == null ? type : existing;
+		}
+		return type;
+	}
+
+	/**
+	 * @param signature a method signature like <T:Ljava/lang/Object;>(Ljava/util/List<TT;>;)TT;
+	 * @return the shared generic signature, parsed once per distinct signature
+	 */
+	public GenericMethodSignature getGenericMethodSignature(String signature) {
+		GenericMethodSignature methodSignature = this.genericMethodSignatures.get(signature);
+		if (methodSignature == null) {
+			methodSignature = GenericSignatureBuilder.buildMethodSignature(signature);
+			GenericMethodSignature existing = this.genericMethodSignatures.putIfAbsent(signature, methodSignature);
+			methodSignature = existing == null ? methodSignature : existing;
+		}
+		return methodSignature;
+	}
+
+	/**
+	 * @return the id of the symbol, or InstructionStream.NO_SYMBOL for null
+	 */
+	public int getId(String symbol) {
+		if (symbol == null) {
+			return InstructionStream.NO_SYMBOL;
+		}
+		Integer id = this.ids.get(symbol);
+		if (id == null) {
+			id = this.ids.computeIfAbsent(intern(symbol), this::assignId);
+		}
+		return id;
+	}
+
+	public String getSymbol(int id) {
+		return id == InstructionStream.NO_SYMBOL ? null : this.symbolsById[id];
+	}
+
+	private synchronized int assignId(String symbol) {
+		if (this.freeIdCount > 0) {
+			int id = this.freeIds[--this.freeIdCount];
+			this.symbolsById[id] = symbol;
+			return id;
+		}
+		String[] byId = this.symbolsById;
+		if (this.nextId == byId.length) {
+			byId = Arrays.copyOf(byId, byId.length * 2);
+		}
+		byId[this.nextId] = symbol;
+		this.symbolsById = byId;
+		return this.nextId++;
+	}
+
+	/**
+	 * Forgets every symbol and parsed signature, except the symbols whose ids are still in use.
+	 * Strings taken from the table before stay valid, they are just no longer the canonical
+	 * instance. Only call this while nothing is being parsed or read from the model.
+	 *
+	 * @param liveIds the ids still referred to, see MethodData.collectSymbolIds
+	 */
+	public synchronized void compact(BitSet liveIds) {
+		this.symbols.clear();
+		this.classNames.clear();
+		this.typeNames.clear();
+		this.argumentTypeNames.clear();
+		this.returnTypeNames.clear();
+		this.genericTypes.clear();
+		this.genericMethodSignatures.clear();
+		this.ids.clear();
+
+		String[] byId = this.symbolsById;
+		this.freeIds = new int[this.nextId];
+		this.freeIdCount = 0;
+		for (int id = this.nextId - 1; id >= 0; id--) {
+			String symbol = byId[id];
+			if (liveIds.get(id) && symbol != null) {
+				this.symbols.put(symbol, symbol);
+				this.ids.put(symbol, id);
+			} else {
+				byId[id] = null;
+				this.freeIds[this.freeIdCount++] = id;
+			}
+		}
+	}
+
+	public int size() {
+		return this.symbols.size();
+	}
+
+}
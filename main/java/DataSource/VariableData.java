@@ -1,12 +1,17 @@
 package DataSource;
 
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 public class VariableData {
 	private String varName;
 	private List<String> dataType;
-	private List<AccessModifiers> modifiers;
+	private String signature;
+	private Set<AccessModifiers> modifiers;
+	private boolean frozen;
 
 	public VariableData(String name, String desc) {
 		//this.isClassField = false;
@@ -14,7 +19,7 @@ public class VariableData {
 		this.varName = name;
 		this.dataType = new LinkedList<String>();
 		this.dataType.add(desc);
-		this.modifiers = new LinkedList<>();
+		this.modifiers = EnumSet.noneOf(AccessModifiers.class);
 	}
 
 	public VariableData() {
@@ -22,7 +27,7 @@ public class VariableData {
 		//this.isLocalVariable = false;
 		this.varName = "";
 		this.dataType = new LinkedList<String>();
-		this.modifiers = new LinkedList<>();
+		this.modifiers = EnumSet.noneOf(AccessModifiers.class);
 	}
 	
 	public VariableData(String name, List<String> desc) {
@@ -30,7 +35,7 @@ public class VariableData {
 		//this.isLocalVariable = false;
 		this.varName = name;
 		this.dataType = desc;
-		this.modifiers = new LinkedList<>();
+		this.modifiers = EnumSet.noneOf(AccessModifiers.class);
 	}
 
 	public void setName(String name) {
@@ -79,11 +84,44 @@ public class VariableData {
 		return dataType;
 	}
 
-	public List<AccessModifiers> getModifiers() {
+	/**
+	 * Sets the generic signature of the variable, like Ljava/util/List<Ljava/lang/String;>;
+	 */
+	public void setSignatureAttribute(String signature) {
+		this.signature = signature;
+	}
+
+	/**
+	 * @return the generic signature, or null if the type is not generic or signatures were not parsed
+	 */
+	public String getSignatureAttribute() {
+		return signature;
+	}
+
+	/**
+	 * @return the parsed generic signature, or null if there is none, see getSignatureAttribute
+	 */
+	public GenericType getGenericType() {
+		return signature == null ? null : SymbolTable.global().getGenericType(signature);
+	}
+
+	public Set<AccessModifiers> getModifiers() {
 		return modifiers;
 	}
 
-	public void setModifiers(List<AccessModifiers> modifiers) {
-		this.modifiers = modifiers;
+	public void setModifiers(Set<AccessModifiers> modifiers) {
+		this.modifiers = modifiers.isEmpty() ? EnumSet.noneOf(AccessModifiers.class) : EnumSet.copyOf(modifiers);
+	}
+
+	/**
+	 * Makes this variable read-only. The data types become an exact-size list.
+	 */
+	public VariableData freeze() {
+		if (!this.frozen) {
+			this.dataType = FrozenLists.freeze(this.dataType);
+			this.modifiers = Collections.unmodifiableSet(this.modifiers);
+			this.frozen = true;
+		}
+		return this;
 	}
 }
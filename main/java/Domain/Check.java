@@ -1,10 +1,21 @@
 package Domain;
 
 import DataSource.ClassData;
+import DataSource.ModelFacet;
 
 import java.io.File;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 public interface Check {
     List<Warning> check(ClassRegistry classRegistry);
+
+    /**
+     * The parts of the model this check reads. Only the parts some enabled check needs are parsed.
+     * A check that does not say gets everything.
+     */
+    default Set<ModelFacet> getRequiredFacets() {
+        return EnumSet.allOf(ModelFacet.class);
+    }
 }
@@ -1,5 +1,6 @@
 package Domain;
 
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -9,10 +10,10 @@ import java.util.Set;
 
 import DataSource.ClassData;
 import DataSource.ClassType;
-import DataSource.InstructionData;
+import DataSource.InstructionStream;
 import DataSource.InstructionType;
-import DataSource.MethodCallInstruction;
 import DataSource.MethodData;
+import DataSource.ModelFacet;
 import DataSource.VariableData;
 
 /**
@@ -53,8 +54,16 @@ public class CheckAbstractFactoryPattern implements Check{
         this.enforceCallInOneMethod = true;
     }
 
+    @Override
+    public Set<ModelFacet> getRequiredFacets() {
+        return EnumSet.of(ModelFacet.FIELDS, ModelFacet.METHODS, ModelFacet.INSTRUCTIONS);
+    }
+
     @Override
     public List<Warning> check(ClassRegistry classRegistry) {
+        // the same instance is reused when the linter runs again in watch mode
+        this.interfaces = new HashMap<>();
+        this.warnings = new LinkedList<>();
         List<ClassData> filesToCheck = new LinkedList<>(classRegistry.getAllClasses());
         for (ClassData javaClass: filesToCheck) {
             String className = javaClass.getName();
@@ -195,17 +204,15 @@ public class CheckAbstractFactoryPattern implements Check{
      * @return true if all factory methods are called
      */
     private boolean ifMethodAppliesFactory(String interfaceName, Map<String, Integer> interfaceMethods, MethodData method) {
-        List<InstructionData> instList = method.getInstructions();
+        InstructionStream instList = method.getInstructionStream();
         for (int i = 0; i < instList.size(); i++) {
-            InstructionData currInst = instList.get(i);
-            if (currInst.getType() == InstructionType.METHOD_CALL) {
-                MethodCallInstruction methodCallInst = (MethodCallInstruction) currInst;
+            if (instList.getType(i) == InstructionType.METHOD_CALL) {
                 
                 //strict match enabled. The value must be directly stored to a field var. 
                 
 
-                if (methodCallInst.getMethodOwner().equals(interfaceName)) {
-                    String methodName = methodCallInst.getMethodName();
+                if (instList.getOwner(i).equals(interfaceName)) {
+                    String methodName = instList.getMemberName(i);
                     Integer methodCountInteger = interfaceMethods.get(methodName);
                     if (methodCountInteger == null) continue;
                     if (methodCountInteger == 1) {
@@ -1,16 +1,24 @@
 package Domain;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import DataSource.AccessModifiers;
 import DataSource.ClassData;
+import DataSource.ModelFacet;
 import DataSource.VariableData;
 
 public class CheckClassFieldsAccess implements Check {
 
+	@Override
+	public Set<ModelFacet> getRequiredFacets() {
+		return EnumSet.of(ModelFacet.FIELDS);
+	}
+
 	@Override
 	public List<Warning> check(ClassRegistry classRegistry) {
 		// TODO Auto-generated method stub
@@ -3,35 +3,41 @@ package Domain;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import DataSource.ClassData;
+import DataSource.ModelFacet;
 
-public class CheckClassName implements Check {
+public class CheckClassName implements IncrementalCheck {
 
     private static final String PASCAL_CASE_REGEX = "^[A-Z][a-z]+(?:[A-Z][a-z]+)*[A-Z]?$";
     private static final String NUMERICAL_REGEX = ".*\\d.*";
 
     @Override
-    public List<Warning> check(ClassRegistry classRegistry) {
+    public Set<ModelFacet> getRequiredFacets() {
+        return EnumSet.noneOf(ModelFacet.class);
+    }
+
+    @Override
+    public List<Warning> checkClass(ClassRegistry classRegistry, ClassData classData) {
         List<Warning> warnings = new ArrayList<>();
 
-        for(ClassData classData : classRegistry.getAllClasses()) {
-            String simpleClassName = classData.getShortenedClassName();
-            WarningLocation warningLocation;
-
-            if(containsNumbers(simpleClassName)) {
-                warningLocation = new WarningLocation(classData.getUserFriendlyClassName());
-                warnings.add(new Warning(warningLocation, WarningType.CLASS_NAME_NUMBERS, "Class contains a number in its name"));
-            }
-            else if(simpleClassName.contains("_")) {
-                warningLocation = new WarningLocation(classData.getUserFriendlyClassName());
-                warnings.add(new Warning(warningLocation, WarningType.CLASS_NAME_UNDERSCORE, "Class contains an underscore in its name"));
-            }
-            else if(!isPascalCase(simpleClassName)) {
-                warningLocation = new WarningLocation(classData.getUserFriendlyClassName());
-                warnings.add(new Warning(warningLocation, WarningType.CLASS_NAME_CASE, "Class does not have a proper PascalCase name"));
-            }
+        String simpleClassName = classData.getShortenedClassName();
+        WarningLocation warningLocation;
+
+        if(containsNumbers(simpleClassName)) {
+            warningLocation = new WarningLocation(classData.getUserFriendlyClassName());
+            warnings.add(new Warning(warningLocation, WarningType.CLASS_NAME_NUMBERS, "Class contains a number in its name"));
+        }
+        else if(simpleClassName.contains("_")) {
+            warningLocation = new WarningLocation(classData.getUserFriendlyClassName());
+            warnings.add(new Warning(warningLocation, WarningType.CLASS_NAME_UNDERSCORE, "Class contains an underscore in its name"));
+        }
+        else if(!isPascalCase(simpleClassName)) {
+            warningLocation = new WarningLocation(classData.getUserFriendlyClassName());
+            warnings.add(new Warning(warningLocation, WarningType.CLASS_NAME_CASE, "Class does not have a proper PascalCase name"));
         }
 
         return warnings;
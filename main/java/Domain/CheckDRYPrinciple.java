@@ -1,19 +1,25 @@
 package Domain;
 
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import DataSource.ClassData;
-import DataSource.InstructionData;
-import DataSource.InstructionType;
-import DataSource.LoadConstInstruction;
+import DataSource.InstructionStream;
 import DataSource.MethodData;
+import DataSource.ModelFacet;
 
 public class CheckDRYPrinciple implements Check {
 
+	@Override
+	public Set<ModelFacet> getRequiredFacets() {
+		return EnumSet.of(ModelFacet.METHODS, ModelFacet.INSTRUCTIONS);
+	}
+
 	@Override
 	public List<Warning> check(ClassRegistry classRegistry) {
 		List<Warning> warnings = new LinkedList<>();
@@ -26,51 +32,33 @@ public class CheckDRYPrinciple implements Check {
 					continue;
 				}
 
-				List<InstructionData> instructions = methodData.getInstructions();
-				LinkedList<LoadConstInstruction> constInsts = new LinkedList<>();
-				for (InstructionData inst : instructions) {
-					if (inst.getType().equals(InstructionType.LOAD_CONST)) {
-						LoadConstInstruction ins = (LoadConstInstruction) inst;
-						if (ins.getConstVal() != null) {
-							constInsts.add(ins);
-						} else {
-							continue;
-						}
-						if (constsWithClassLocs.containsKey(ins.getConstVal())) {
-							HashSet<String> locations = constsWithClassLocs.get(ins.getConstVal());
-							locations.add(classData.getName());
-							constsWithClassLocs.put(ins.getConstVal(), locations);
-						} else {
-							HashSet<String> locations = new HashSet<>();
-							locations.add(classData.getName());
-							constsWithClassLocs.put(ins.getConstVal(), locations);
-						}
+				InstructionStream instructions = methodData.getInstructionStream();
+				LinkedList<String> constVals = new LinkedList<>();
+				for (int i = 0; i < instructions.size(); i++) {
+					String constVal = instructions.getConstant(i);
+					if (constVal == null) {
+						continue;
+					}
+					constVals.add(constVal);
+					if (constsWithClassLocs.containsKey(constVal)) {
+						HashSet<String> locations = constsWithClassLocs.get(constVal);
+						locations.add(classData.getName());
+						constsWithClassLocs.put(constVal, locations);
+					} else {
+						HashSet<String> locations = new HashSet<>();
+						locations.add(classData.getName());
+						constsWithClassLocs.put(constVal, locations);
 					}
 				}
 
 				// Check for duplicate instructions within the current method
-				if (checkDuplicateInstructions(constInsts)) {
+				if (checkDuplicateInstructions(constVals)) {
 					Warning inFileWarning = new Warning(new WarningLocation(classData.getName()),
 							WarningType.DONT_REPEAT_YOURSELF, "Don't Repeat Yourself violation found in method "
 									+ methodData.getMethodName() + " of " + classData.getName());
 					if (isUniqueLocation(warnings, inFileWarning)) {
 						warnings.add(inFileWarning);
 					}
-					continue;
-				}
-
-				// Check for duplicate instructions across other methods in the same class
-				for (MethodData otherMethodData : classData.getMethods()) {
-					if (methodData.equals(otherMethodData)) {
-						continue;
-					}
-
-					LinkedList<LoadConstInstruction> otherConstInsts = new LinkedList<>();
-					for (InstructionData inst : otherMethodData.getInstructions()) {
-						if (inst.getType().equals(InstructionType.LOAD_CONST)) {
-							otherConstInsts.add((LoadConstInstruction) inst);
-						}
-					}
 				}
 			}
 		}
@@ -107,20 +95,13 @@ public class CheckDRYPrinciple implements Check {
 		return true;
 	}
 
-	private boolean checkDuplicateInstructions(List<LoadConstInstruction> insts) {
+	private boolean checkDuplicateInstructions(List<String> constVals) {
 	    HashSet<String> distinctVals = new HashSet<>();
-	    HashSet<LoadConstInstruction> seenInsts = new HashSet<>();
 	    
-	    for (LoadConstInstruction inst : insts) {
-	        if (seenInsts.contains(inst)) {
-	            continue;
-	        }
-	        
-	        if (inst.getConstVal() != null && !distinctVals.add(inst.getConstVal())) {
+	    for (String constVal : constVals) {
+	        if (!distinctVals.add(constVal)) {
 	            return true;
 	        }
-	        
-	        seenInsts.add(inst);
 	    }
 	    
 	    return false;
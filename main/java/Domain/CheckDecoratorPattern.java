@@ -4,29 +4,30 @@ import DataSource.*;
 
 import java.util.*;
 
-public class CheckDecoratorPattern implements Check {
+public class CheckDecoratorPattern implements IncrementalCheck {
 
     @Override
-    public List<Warning> check(ClassRegistry classRegistry) {
+    public Set<ModelFacet> getRequiredFacets() {
+        return EnumSet.of(ModelFacet.HIERARCHY, ModelFacet.FIELDS, ModelFacet.METHODS, ModelFacet.INSTRUCTIONS);
+    }
 
-        List<Warning> warnings = new LinkedList<>();
+    @Override
+    public List<Warning> checkClass(ClassRegistry classRegistry, ClassData classData) {
 
-        for(ClassData classData : classRegistry.getAllClasses()) {
+        List<Warning> warnings = new LinkedList<>();
 
-            DecoratorInformation info = getDecoratorInformation(classRegistry, classData);
+        DecoratorInformation info = getDecoratorInformation(classRegistry, classData);
 
-            if(info != null) {
-                List<WarningLocation> locations = new LinkedList<>();
-                locations.add(new WarningLocation(info.decorator));
-                locations.add(new WarningLocation(info.componentInterface));
-                for(String concreteDecorator : info.concreteDecorators) {
-                    locations.add(new WarningLocation(concreteDecorator));
-                }
-                Warning warning = new Warning(locations, WarningType.DECORATOR_PATTERN_FOUND, "Detected Decorator Pattern with " + info.concreteDecorators.size() + " concrete implementation(s)");
-                warnings.add(warning);
-                warnings.addAll(checkBadDecoratorPatternImplementation(classRegistry, info));
+        if(info != null) {
+            List<WarningLocation> locations = new LinkedList<>();
+            locations.add(new WarningLocation(info.decorator));
+            locations.add(new WarningLocation(info.componentInterface));
+            for(String concreteDecorator : info.concreteDecorators) {
+                locations.add(new WarningLocation(concreteDecorator));
             }
-
+            Warning warning = new Warning(locations, WarningType.DECORATOR_PATTERN_FOUND, "Detected Decorator Pattern with " + info.concreteDecorators.size() + " concrete implementation(s)");
+            warnings.add(warning);
+            warnings.addAll(checkBadDecoratorPatternImplementation(classRegistry, info));
         }
 
         return warnings;
@@ -121,8 +122,9 @@ public class CheckDecoratorPattern implements Check {
                     }
                 }
             } else {
-                for(InstructionData instructionData : methodData.getInstructions()) {
-                    if(instructionData.getType() == InstructionType.SELF_METHOD_CALL && !((MethodCallInstruction) instructionData).getMethodOwner().equals(concreteDecorator.getName())) {
+                InstructionStream instructions = methodData.getInstructionStream();
+                for(int i = 0; i < instructions.size(); i++) {
+                    if(instructions.getType(i) == InstructionType.SELF_METHOD_CALL && callsSuper(classRegistry, concreteDecorator, instructions, i)) {
                         warnings.add(new Warning(location, WarningType.DECORATOR_SUPER_CALL, "The decorator is calling \"super\" (call the concrete component instead)"));
                     }
                 }
@@ -138,4 +140,22 @@ public class CheckDecoratorPattern implements Check {
         return warnings;
     }
 
+    /**
+     * Whether a call made on this reaches a method of a supertype, like super.operation().
+     * Calls to another class that merely take this as an argument do not.
+     */
+    private boolean callsSuper(ClassRegistry classRegistry, ClassData concreteDecorator, InstructionStream instructions, int index) {
+        String owner = instructions.getOwner(index);
+        if(owner.equals(concreteDecorator.getName())) {
+            return false;
+        }
+        MethodTable.Entry entry = classRegistry.getMethodTable(concreteDecorator.getName())
+                .get(instructions.getMemberName(index) + instructions.getMemberDescriptor(index));
+        if(entry != null) {
+            return entry.getResolution() != MethodTable.Resolution.DECLARED;
+        }
+        // the supertype is known, but not its methods
+        return classRegistry.classIsA(concreteDecorator.getName(), owner);
+    }
+
 }
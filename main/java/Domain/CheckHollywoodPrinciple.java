@@ -1,42 +1,71 @@
 package Domain;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import DataSource.ClassData;
-import DataSource.InstructionData;
-import DataSource.InstructionType;
-import DataSource.MethodCallInstruction;
+import DataSource.InstructionStream;
 import DataSource.MethodData;
+import DataSource.ModelFacet;
 import DataSource.VariableData;
 
-public class CheckHollywoodPrinciple implements Check {
+public class CheckHollywoodPrinciple implements IncrementalCheck {
 
 	private ClassRegistry cr;
-	private List<Warning> warnings;
+	private Map<String, List<Warning>> warnings;
 	private Map<String, List<String>> dependencies;
+	private Set<String> checkedClasses;
 
 	@Override
-	public List<Warning> check(ClassRegistry classRegistry) {
+	public Set<ModelFacet> getRequiredFacets() {
+		// the dependencies in the registry are collected from the whole model
+		return EnumSet.allOf(ModelFacet.class);
+	}
+
+	@Override
+	public List<Warning> checkClass(ClassRegistry classRegistry, ClassData classData) {
+		return checkClasses(classRegistry, Collections.singletonList(classData)).get(classData.getName());
+	}
+
+	@Override
+	public Map<String, List<Warning>> checkClasses(ClassRegistry classRegistry, Collection<ClassData> classesToCheck) {
 		cr = classRegistry;
-		warnings = new ArrayList<Warning>();
+		warnings = new LinkedHashMap<>();
 		dependencies = new HashMap<>();
+		checkedClasses = new HashSet<>();
+		for (ClassData cd : classesToCheck) {
+			checkedClasses.add(cd.getName());
+			warnings.put(cd.getName(), new ArrayList<Warning>());
+		}
 		// create dependency chart
 
-		for (ClassData cd : classRegistry.getAllClasses()) {
+		Collection<ClassData> chartClasses = classesToCheck;
+		if (classesToCheck.size() < classRegistry.getAllClasses().size()) {
+			chartClasses = getChartClasses(classesToCheck);
+		}
+		for (ClassData cd : chartClasses) {
 			this.dependencies.put(cd.getName(), new ArrayList<String>());
 		}
-		for (ClassData cd : classRegistry.getAllClasses()) {
+		for (ClassData cd : chartClasses) {
 			generateDependencies(cd);
 		}
 		cleanDependencies();
 
 		// check each class for circular dependency
 		for (String key : dependencies.keySet()) {
-			checkCallings(key);
+			if (checkedClasses.contains(key)) {
+				checkCallings(key);
+			}
 		}
 //		for (String s : dependencies.keySet()) {
 //			System.out.println(s + " has dependencies on : ");
@@ -50,46 +79,58 @@ public class CheckHollywoodPrinciple implements Check {
 		return this.warnings;
 	}
 
+	/**
+	 * A circular dependency of a checked class also needs the dependencies of the classes it
+	 * depends on, and an interface depends on the classes implementing it, so those classes
+	 * are added to the chart as well.
+	 */
+	private Collection<ClassData> getChartClasses(Collection<ClassData> classesToCheck) {
+		Set<ClassData> chartClasses = new LinkedHashSet<>(classesToCheck);
+		for (ClassData cd : classesToCheck) {
+			for (String dependency : cr.getDependencies(cd.getName())) {
+				if (cr.get(dependency) != null) {
+					chartClasses.add(cr.get(dependency));
+				}
+			}
+		}
+		for (ClassData cd : new ArrayList<>(chartClasses)) {
+			for (String dependent : cr.getDependents(cd.getName())) {
+				ClassData implementor = cr.get(dependent);
+				if (implementor != null && implementor.getInterfaces().contains(cd.getName())) {
+					chartClasses.add(implementor);
+				}
+			}
+		}
+		return chartClasses;
+	}
+
 	private void checkCallings(String key) {
 		// TODO Auto-generated method stub
 		for (String d : dependencies.get(key)) {
-			if (dependencies.get(d).contains(key)) {
+			List<String> dependenciesOfD = dependencies.get(d);
+			if (dependenciesOfD != null && dependenciesOfD.contains(key)) {
 				createCircleWarning(key, d);
 			}
 		}
 	}
 
+	// both classes of a cycle are always checked together, and the one whose name sorts first reports it
 	private void createCircleWarning(String c1, String c2) {
 		List<WarningLocation> locations = new LinkedList<>();
 		locations.add(new WarningLocation(c1));
 		locations.add(new WarningLocation(c2));
 		String str = c1 + " Depends on " + c2 + " and vice versa";
-		if (checkCircleWarningNotExist(c1, c2)) {
+		if (c1.compareTo(c2) < 0) {
 			Warning w = new Warning(locations, WarningType.HOLLYWOOD_PRINCIPLE_VIOLATION, str);
-			warnings.add(w);
-		}
-	}
-
-	private boolean checkCircleWarningNotExist(String c1, String c2) {
-		String str = c2 + " Depends on " + c1 + " and vice versa";
-		for (Warning w : warnings) {
-			if (w.getWarningText().equals(str)) {
-				return false;
-			}
+			warnings.get(c1).add(w);
 		}
-		return true;
 	}
 
 	private void generateDependencies(ClassData cd) {
 		// TODO Auto-generated method stub
 //		List<ClassData> dependents = new ArrayList<>();
 		interfaceArrows(cd);
-		List<VariableData> fields = cd.getFieldVariables();
-		HashMap<Integer, VariableData> fieldss = new HashMap<>();
-		for (int i = 0; i < fields.size(); i++) {
-			fieldss.put(i, fields.get(i));
-		}
-		checkVars(fieldss, cd);
+		checkVars(cd.getFieldVariables(), cd);
 		for (MethodData md : cd.getMethods()) {
 			dependenciesFromMethod(md, cd);
 		}
@@ -98,7 +139,7 @@ public class CheckHollywoodPrinciple implements Check {
 	private void dependenciesFromMethod(MethodData md, ClassData cd) {
 		checkVars(md.getLocalVariables(), cd);
 //		String s = md.getLocalVariables().get(0).getDataType();
-		checkInstructions(md.getInstructions(), md, cd);
+		checkInstructions(md.getInstructionStream(), md, cd);
 		checkTypes(md.getParams(), cd);
 		checkType(md.getReturnType(), cd);
 	}
@@ -111,9 +152,8 @@ public class CheckHollywoodPrinciple implements Check {
 		}
 	}
 
-	private void checkVars(Map<Integer, VariableData> map, ClassData cd) {
-		for (Integer i : map.keySet()) {
-			VariableData v = map.get(i);
+	private void checkVars(List<VariableData> vars, ClassData cd) {
+		for (VariableData v : vars) {
 			if (!isPrimitive(v.getDataType())) {
 				addDependency(cd.getName(), v.getDataType());
 //				this.dependencies.get(cd.getName()).add(v.getDataType());
@@ -138,39 +178,42 @@ public class CheckHollywoodPrinciple implements Check {
 		}
 	}
 
-	private void checkInstructions(List<InstructionData> instr, MethodData md, ClassData cd) {
-		for (InstructionData id : instr) {
-			if (id.getType().equals(InstructionType.METHOD_CALL)
-					|| id.getType().equals(InstructionType.SELF_METHOD_CALL)) {
+	private void checkInstructions(InstructionStream instr, MethodData md, ClassData cd) {
+		for (int i = 0; i < instr.size(); i++) {
+			if (instr.isMethodCall(i)) {
 //				System.out.println(id.toString());
-				MethodCallInstruction i = (MethodCallInstruction) id;
+				String methodOwner = instr.getOwner(i);
+				String methodName = instr.getMemberName(i);
 //				dependencies.get(cd.getName()).add(i.getMethodOwner());
-				addDependency(cd.getName(), i.getMethodOwner());
+				addDependency(cd.getName(), methodOwner);
 
-				if (i.getMethodOwner().equals(cd.getSuperClassName()) && !i.getMethodName().equals(md.getName())) {
-					generateBadSuperWarning(i, md, cd);
+				if (methodOwner.equals(cd.getSuperClassName()) && !methodName.equals(md.getName())) {
+					generateBadSuperWarning(methodName, md, cd);
 				}
 			}
 		}
 	}
 
-	private void generateBadSuperWarning(MethodCallInstruction i, MethodData md, ClassData cd) {
+	private void generateBadSuperWarning(String methodName, MethodData md, ClassData cd) {
 		// TODO Auto-generated method stub
+		if (!checkedClasses.contains(cd.getName())) {
+			return;
+		}
 		List<WarningLocation> locations = new LinkedList<>();
 		locations.add(new WarningLocation(cd.getName()));
 		String str = cd.getName() + " is calling a super method in a non decorator way in method " + md.getName()
-				+ "\nCalls super method " + i.getMethodName();
-		if (checkSuperWarningNotExist(i, md, cd)) {
+				+ "\nCalls super method " + methodName;
+		if (checkSuperWarningNotExist(methodName, md, cd)) {
 			Warning w = new Warning(locations, WarningType.HOLLYWOOD_PRINCIPLE_VIOLATION, str);
-			warnings.add(w);
+			warnings.get(cd.getName()).add(w);
 		}
 	}
 
-	private boolean checkSuperWarningNotExist(MethodCallInstruction i, MethodData md, ClassData cd) {
+	private boolean checkSuperWarningNotExist(String methodName, MethodData md, ClassData cd) {
 		// TODO Auto-generated method stub
 		String str = cd.getName() + " is calling a super method in a non decorator way in method " + md.getName()
-				+ "\nCalls super method " + i.getMethodName();
-		for (Warning w : warnings) {
+				+ "\nCalls super method " + methodName;
+		for (Warning w : warnings.get(cd.getName())) {
 			if (str.equals(w.getWarningText())) {
 				return false;
 			}
@@ -179,8 +222,10 @@ public class CheckHollywoodPrinciple implements Check {
 	}
 
 	private void addDependency(String main, String dependsOn) {
-		if (!dependencies.get(main).contains(dependsOn)) {
-			dependencies.get(main).add(dependsOn);
+		// main is not charted when it is an interface from outside the registry
+		List<String> dependenciesOfMain = dependencies.computeIfAbsent(main, k -> new ArrayList<String>());
+		if (!dependenciesOfMain.contains(dependsOn)) {
+			dependenciesOfMain.add(dependsOn);
 		}
 	}
 
@@ -207,7 +252,7 @@ public class CheckHollywoodPrinciple implements Check {
 	private void cleanDependencies() {
 		for (String s : this.dependencies.keySet()) {
 			for (int i = 0; i < dependencies.get(s).size(); i++) {
-				if (!this.cr.getAllClasses().contains(cr.get(dependencies.get(s).get(i)))
+				if (cr.get(dependencies.get(s).get(i)) == null
 						|| s.equals(dependencies.get(s).get(i))) {
 					dependencies.get(s).remove(i);
 					i--;
@@ -1,33 +1,80 @@
 package Domain;
 
+import DataSource.ClassData;
+import DataSource.ModelFacet;
+
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class CheckManager {
 
-    private static final Map<String, Check> CHECK_MAP = new HashMap<>();
-    static {
-        CHECK_MAP.put("CheckAbstractFactoryPattern", new CheckAbstractFactoryPattern());
-        CHECK_MAP.put("CheckClassFieldsAccess", new CheckClassFieldsAccess());
-        CHECK_MAP.put("CheckClassName", new CheckClassName());
-        CHECK_MAP.put("CheckDecoratorPattern", new CheckDecoratorPattern());
-        CHECK_MAP.put("CheckDRYPrinciple", new CheckDRYPrinciple());
-        CHECK_MAP.put("CheckHollywoodPrinciple", new CheckHollywoodPrinciple());
-        CHECK_MAP.put("CheckMethodName", new CheckMethodName());
-        CHECK_MAP.put("CheckRedundantConstructor", new CheckRedundantConstructor());
-        CHECK_MAP.put("CheckRedundantInterface", new CheckRedundantInterface());
-        CHECK_MAP.put("CheckSingletonPattern", new CheckSingletonPattern());
-        CHECK_MAP.put("CheckStrategyPattern", new CheckStrategyPattern());
-        CHECK_MAP.put("CheckTrainWreck", new CheckTrainWreck());
+    private Map<String, Check> checkInstances = new HashMap<>();
+
+    // the warnings of each IncrementalCheck from the previous run, by check name and then by class name
+    private Map<String, Map<String, List<Warning>>> previousWarnings = new HashMap<>();
+
+    private int moduleThreads = 1;
+
+    /**
+     * When the registry has several modules, an IncrementalCheck checks the classes of each
+     * module on its own, on up to this many modules at once. Each module gets its own instance
+     * of the check. Method bodies must be safe to read from several threads, which rules out
+     * a MethodBodySpill.
+     */
+    public void setModuleThreads(int moduleThreads) {
+        this.moduleThreads = moduleThreads;
     }
 
     public List<Warning> runAllChecks(ClassRegistry classRegistry, Map<String, Object> configMap) {
+        return runChecks(classRegistry, configMap, null);
+    }
+
+    /**
+     * Runs the enabled checks again after the given classes were affected by a change
+     * (see ClassRegistry.takeAffectedClasses). An IncrementalCheck only checks the affected
+     * classes again and keeps its previous warnings for all other classes.
+     * Other checks run over the whole registry again.
+     */
+    public List<Warning> runChecksAgain(ClassRegistry classRegistry, Map<String, Object> configMap, Set<String> affectedClasses) {
+        return runChecks(classRegistry, configMap, affectedClasses);
+    }
+
+    /**
+     * The parts of the model that the enabled checks read, see Check.getRequiredFacets.
+     */
+    public Set<ModelFacet> getRequiredFacets(Map<String, Object> configMap) {
+        Set<ModelFacet> facets = EnumSet.noneOf(ModelFacet.class);
+        Map<String, Object> checks = (Map<String, Object>) configMap.get("checks");
+        for (Map.Entry<String, Object> e: checks.entrySet()) {
+            if (!Boolean.TRUE.equals(e.getValue())) {
+                continue;
+            }
+            Check check = getCheck(e.getKey());
+            if (check != null) {
+                facets.addAll(check.getRequiredFacets());
+            }
+        }
+        return facets;
+    }
+
+    private List<Warning> runChecks(ClassRegistry classRegistry, Map<String, Object> configMap, Set<String> affectedClasses) {
         List<Warning> warnings = new LinkedList<>();
 
         Map<String, Object> checks = (Map<String, Object>) configMap.get("checks");
+        boolean releaseBodies = releaseBodiesAfterEachCheck(configMap);
         for (Map.Entry<String, Object> e: checks.entrySet()) {
             String checkName = e.getKey();
             boolean checkEnabled = false;
@@ -40,7 +87,7 @@ public class CheckManager {
             }
 
             if (checkEnabled) {
-                Check check = CHECK_MAP.get(checkName);
+                Check check = getCheck(checkName);
 
                 if (check == null) {
                     System.err.format("Check does not exist: %s\n\n", checkName);
@@ -48,15 +95,139 @@ public class CheckManager {
                 }
 
                 try {
-                    warnings.addAll(check.check(classRegistry));
+                    if (check instanceof IncrementalCheck) {
+                        warnings.addAll(runIncrementalCheck(checkName, (IncrementalCheck) check, classRegistry, affectedClasses));
+                    } else {
+                        warnings.addAll(check.check(classRegistry));
+                    }
                 } catch (Exception checkException) {
+                    previousWarnings.remove(checkName);
                     System.err.format("An error occured while performing check: %s\n\n", checkName);
                     checkException.printStackTrace(System.err);
                 }
+
+                if (releaseBodies) {
+                    classRegistry.releaseMethodBodies();
+                }
             }
         }
 
         return warnings;
     }
 
+    private List<Warning> runIncrementalCheck(String checkName, IncrementalCheck check, ClassRegistry classRegistry, Set<String> affectedClasses) {
+        Map<String, List<Warning>> warningsByClass = previousWarnings.get(checkName);
+        if (affectedClasses == null && classRegistry.getModules().size() > 1) {
+            warningsByClass = checkModules(checkName, classRegistry);
+        } else if (affectedClasses == null || warningsByClass == null) {
+            warningsByClass = check.checkClasses(classRegistry, classRegistry.getAllClasses());
+        } else {
+            List<ClassData> classesToCheck = new ArrayList<>();
+            for (String className : affectedClasses) {
+                warningsByClass.remove(className);
+                ClassData classData = classRegistry.get(className);
+                if (classData != null) {
+                    classesToCheck.add(classData);
+                }
+            }
+            warningsByClass.putAll(check.checkClasses(classRegistry, classesToCheck));
+        }
+        previousWarnings.put(checkName, warningsByClass);
+
+        List<Warning> warnings = new LinkedList<>();
+        for (List<Warning> classWarnings : warningsByClass.values()) {
+            warnings.addAll(classWarnings);
+        }
+        return warnings;
+    }
+
+    /**
+     * Checks the classes of every module against the whole registry. A class shared by several
+     * modules (the same ClassData, see ClassDeduplicator) is only checked in the first of them.
+     * Classes that several modules define differently are checked in each, their warnings name
+     * the module and are merged under the class name.
+     */
+    private Map<String, List<Warning>> checkModules(String checkName, ClassRegistry classRegistry) {
+        Map<String, List<ClassData>> classesByModule = new LinkedHashMap<>();
+        Set<ClassData> assigned = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<String, Integer> versions = new HashMap<>();
+        for (String module : classRegistry.getModules()) {
+            List<ClassData> moduleClasses = new ArrayList<>();
+            for (ClassData classData : classRegistry.getModuleClasses(module)) {
+                if (assigned.add(classData)) {
+                    moduleClasses.add(classData);
+                    versions.merge(classData.getName(), 1, Integer::sum);
+                }
+            }
+            classesByModule.put(module, moduleClasses);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(moduleThreads, classesByModule.size())));
+        try {
+            Map<String, Future<Map<String, List<Warning>>>> results = new LinkedHashMap<>();
+            for (Map.Entry<String, List<ClassData>> module : classesByModule.entrySet()) {
+                IncrementalCheck moduleCheck = (IncrementalCheck) createCheck(checkName);
+                results.put(module.getKey(), executor.submit(() -> moduleCheck.checkClasses(classRegistry, module.getValue())));
+            }
+
+            Map<String, List<Warning>> warningsByClass = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<Map<String, List<Warning>>>> result : results.entrySet()) {
+                for (Map.Entry<String, List<Warning>> e : result.getValue().get().entrySet()) {
+                    if (versions.getOrDefault(e.getKey(), 1) > 1) {
+                        for (Warning warning : e.getValue()) {
+                            warning.setModule(result.getKey());
+                        }
+                    }
+                    warningsByClass.computeIfAbsent(e.getKey(), k -> new ArrayList<>()).addAll(e.getValue());
+                }
+            }
+            return warningsByClass;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running " + checkName, e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to run " + checkName + " on a module", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the check with the given name, creating it on first use, or null if there is none.
+     * Checks are only created once enabled, so a run with few checks does not load the others.
+     */
+    private Check getCheck(String checkName) {
+        Check check = checkInstances.get(checkName);
+        if (check == null) {
+            check = createCheck(checkName);
+            if (check != null) {
+                checkInstances.put(checkName, check);
+            }
+        }
+        return check;
+    }
+
+    private static Check createCheck(String checkName) {
+        switch (checkName) {
+            case "CheckAbstractFactoryPattern": return new CheckAbstractFactoryPattern();
+            case "CheckClassFieldsAccess": return new CheckClassFieldsAccess();
+            case "CheckClassName": return new CheckClassName();
+            case "CheckDecoratorPattern": return new CheckDecoratorPattern();
+            case "CheckDRYPrinciple": return new CheckDRYPrinciple();
+            case "CheckHollywoodPrinciple": return new CheckHollywoodPrinciple();
+            case "CheckMethodName": return new CheckMethodName();
+            case "CheckRedundantConstructor": return new CheckRedundantConstructor();
+            case "CheckRedundantInterface": return new CheckRedundantInterface();
+            case "CheckSingletonPattern": return new CheckSingletonPattern();
+            case "CheckStrategyPattern": return new CheckStrategyPattern();
+            case "CheckTrainWreck": return new CheckTrainWreck();
+            default: return null;
+        }
+    }
+
+    private boolean releaseBodiesAfterEachCheck(Map<String, Object> configMap) {
+        Map<String, Object> parserConfig = (Map<String, Object>) configMap.get("parser");
+        return parserConfig != null && Boolean.TRUE.equals(parserConfig.get("releaseBodies"));
+    }
+
 }
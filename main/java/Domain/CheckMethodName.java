@@ -1,28 +1,34 @@
 package Domain;
 
+import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import DataSource.ClassData;
 import DataSource.MethodData;
+import DataSource.ModelFacet;
 
-public class CheckMethodName implements Check {
+public class CheckMethodName implements IncrementalCheck {
 	
 	private static final String CAMEL_CASE_REGEX = "[a-z]([A-Z0-9]*[a-z][a-z0-9]*[A-Z]|[a-z0-9]*[A-Z][A-Z0-9]*[a-z])[A-Za-z0-9]*";
 	private static final String CAMEL_CASE_NO_UPPER_REGEX = "[a-z]+";
 
 	@Override
-	public List<Warning> check(ClassRegistry classRegistry) {
+	public Set<ModelFacet> getRequiredFacets() {
+		return EnumSet.of(ModelFacet.METHODS);
+	}
+
+	@Override
+	public List<Warning> checkClass(ClassRegistry classRegistry, ClassData classData) {
 		List<Warning> warnings = new LinkedList<>();
 		
-		for (ClassData classData : classRegistry.getAllClasses()) {
-			for (MethodData methodData : classData.getMethods()) {
-				if (!methodData.getMethodName().equals("<init>") && !methodData.getMethodName().equals("<clinit>") && !hasProperCapitalization(methodData.getMethodName())) {
-					warnings.add(new Warning(
-							new WarningLocation(classData.getUserFriendlyClassName(), methodData.getMethodName()),
-							WarningType.METHOD_NAME_BAD_CAPITALIZATION,
-							"Method does not use correct capitalization"));
-				}
+		for (MethodData methodData : classData.getMethods()) {
+			if (!methodData.getMethodName().equals("<init>") && !methodData.getMethodName().equals("<clinit>") && !hasProperCapitalization(methodData.getMethodName())) {
+				warnings.add(new Warning(
+						new WarningLocation(classData.getUserFriendlyClassName(), methodData.getMethodName()),
+						WarningType.METHOD_NAME_BAD_CAPITALIZATION,
+						"Method does not use correct capitalization"));
 			}
 		}
 		
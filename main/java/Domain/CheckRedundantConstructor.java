@@ -1,37 +1,42 @@
 package Domain;
 
 import java.lang.reflect.Method;
+import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import DataSource.ClassData;
-import DataSource.InstructionData;
-import DataSource.InstructionType;
-import DataSource.MethodCallInstruction;
+import DataSource.InstructionStream;
 import DataSource.MethodData;
+import DataSource.ModelFacet;
 
 /**
  * @author Qingyuan Jiao
  * Check: A class that contains only static methods shouldn't have a non-default constructor
  */
-public class CheckRedundantConstructor implements Check{
+public class CheckRedundantConstructor implements IncrementalCheck {
 
     @Override
-    public List<Warning> check(ClassRegistry classRegistry) {
+    public Set<ModelFacet> getRequiredFacets() {
+        return EnumSet.of(ModelFacet.METHODS, ModelFacet.INSTRUCTIONS);
+    }
+
+    @Override
+    public List<Warning> checkClass(ClassRegistry classRegistry, ClassData classData) {
         List<Warning> warnings = new LinkedList<>();
-        for (ClassData classData: classRegistry.getAllClasses()) {
-            List<MethodData> constructors = this.getConstructorIfAllStaticMethods(classData);
-            if (constructors == null) continue;
-            if (constructors.size() > 1) {
+        List<MethodData> constructors = this.getConstructorIfAllStaticMethods(classData);
+        if (constructors == null) return warnings;
+        if (constructors.size() > 1) {
+            warnings.add(this.buildWarning(classData.getName()));
+        } else {
+            MethodData constructor = constructors.get(0);
+            //counted like the old instruction list: method calls, variable instructions and constant loads
+            int instCount = constructor.getInstructionStream().countOf(InstructionStream.CALL_VAR_CONST_TYPES);
+            if (instCount > 2) { //default constructor has only two instructions
                 warnings.add(this.buildWarning(classData.getName()));
-            } else {
-                MethodData constructor = constructors.get(0);
-                List<InstructionData> instList = constructor.getInstructions();
-                if (instList.size() > 2) { //default constructor has only two instructions
-                    warnings.add(this.buildWarning(classData.getName()));
-                }
-                
             }
+            
         }
         return warnings;
     }
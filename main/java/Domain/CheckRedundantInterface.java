@@ -3,56 +3,56 @@ package Domain;
 import DataSource.ClassData;
 import DataSource.ClassType;
 import DataSource.MethodData;
+import DataSource.ModelFacet;
 
 import java.util.*;
 
-public class CheckRedundantInterface implements Check {
+public class CheckRedundantInterface implements IncrementalCheck {
 
-    public List<Warning> check(ClassRegistry classRegistry) {
-        List<Warning> warnings = new LinkedList<>();
-
-        for(ClassData classData : classRegistry.getAllClasses()) {
-            warnings.addAll(checkClass(classRegistry, classData));
-        }
-
-        return warnings;
+    @Override
+    public Set<ModelFacet> getRequiredFacets() {
+        return EnumSet.of(ModelFacet.HIERARCHY, ModelFacet.METHODS);
     }
 
-    private List<Warning> checkClass(ClassRegistry classRegistry, ClassData classData) {
+    @Override
+    public List<Warning> checkClass(ClassRegistry classRegistry, ClassData classData) {
         List<Warning> warnings = new ArrayList<>();
 
         if(classData.getClassType() != ClassType.CONCRETE || classData.getInterfaces().size() == 0) {
             return warnings;
         }
 
-        List<String> interfaces = classData.getInterfaces();
-        ClassData cd = classRegistry.get(classData.getSuperClassName());
-        while(cd != null) {
-
-            for(String interfaceName : interfaces) {
-                ClassData interfaceClass = classRegistry.get(interfaceName);
-                for(MethodData interfaceMethodData : interfaceClass.getMethods()) {
-                    for(MethodData classMethodData : cd.getMethods()) {
-                        if(interfaceMethodData.getSignature().equals(classMethodData.getSignature())) {
-                            List<WarningLocation> locations = Collections.singletonList(new WarningLocation(classData.getUserFriendlyClassName(), classMethodData.getSignature()));
-                            String sb = "Class both inherits and implements method from class " + cd.getUserFriendlyClassName() +
-                                    " and interface " + interfaceClass.getUserFriendlyClassName();
-                            warnings.add(new Warning(locations, WarningType.REDUNDANT_INTERFACE, sb));
-                        }
-                    }
-                }
-            }
+        ClassData superClass = classRegistry.get(classData.getSuperClassName());
+        if(superClass == null) {
+            return warnings;
+        }
 
-            if(cd.getSuperClassName().equals("java.lang.Object")) {
-                break;
+        MethodTable superMethods = classRegistry.getMethodTable(superClass.getName());
+        for(String interfaceName : classData.getInterfaces()) {
+            ClassData interfaceClass = classRegistry.get(interfaceName);
+            if(interfaceClass == null) {
+                continue;
+            }
+            for(MethodData interfaceMethodData : interfaceClass.getMethods()) {
+                MethodTable.Entry entry = superMethods.get(interfaceMethodData.getKey());
+                if(entry == null || !inheritsFromClass(entry)) {
+                    continue;
+                }
+                ClassData cd = entry.getDeclaringClass();
+                List<WarningLocation> locations = Collections.singletonList(new WarningLocation(classData.getUserFriendlyClassName(), entry.getMethod().getSignature()));
+                String sb = "Class both inherits and implements method from class " + cd.getUserFriendlyClassName() +
+                        " and interface " + interfaceClass.getUserFriendlyClassName();
+                warnings.add(new Warning(locations, WarningType.REDUNDANT_INTERFACE, sb));
             }
-
-            ClassData parent = classRegistry.get(cd.getSuperClassName());
-            cd = parent;
         }
 
-
         return warnings;
 
     }
+
+    // methods every class gets from java.lang.Object do not count
+    private boolean inheritsFromClass(MethodTable.Entry entry) {
+        ClassData declaringClass = entry.getDeclaringClass();
+        return declaringClass.getClassType() != ClassType.INTERFACE && !declaringClass.getName().equals("java.lang.Object");
+    }
 }
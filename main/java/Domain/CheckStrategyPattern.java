@@ -1,13 +1,16 @@
 package Domain;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
 
 import DataSource.ClassData;
 import DataSource.ClassType;
 import DataSource.MethodData;
 import DataSource.MethodType;
+import DataSource.ModelFacet;
 import DataSource.VariableData;
 
 public class CheckStrategyPattern implements Check {
@@ -17,6 +20,11 @@ public class CheckStrategyPattern implements Check {
 	private HashMap<String, List<String>> interfaces;
 	private HashMap<String, List<String>> abstractandSuperClasses;
 
+	@Override
+	public Set<ModelFacet> getRequiredFacets() {
+		return EnumSet.of(ModelFacet.HIERARCHY, ModelFacet.FIELDS, ModelFacet.SIGNATURES, ModelFacet.METHODS);
+	}
+
 	@Override
 	public List<Warning> check(ClassRegistry classRegistry) {
 		// TODO Auto-generated method stub
@@ -69,7 +77,7 @@ public class CheckStrategyPattern implements Check {
 			for (String subclass : subclasses) {
 				ClassData cd = classRegistry.get(subclass);
 				for (MethodData m : sharedMethods) {
-					if (!methodInList(cd.getMethods(), m)) {
+					if (!methodInClass(cd, m)) {
 						sharedMethods.remove(m);
 					}
 				}
@@ -95,13 +103,9 @@ public class CheckStrategyPattern implements Check {
 		checkInterfacesorAbstractClasses(interfaces, "interface");
 	}
 
-	private boolean methodInList(List<MethodData> list, MethodData md) {
-		for (MethodData m : list) {
-			if (m.getName().equals(md.getName()) && m.getParams().equals(md.getParams())) {
-				return true;
-			}
-		}
-		return false;
+	private boolean methodInClass(ClassData cd, MethodData md) {
+		MethodTable.Entry entry = classRegistry.getMethodTable(cd.getName()).get(md.getKey());
+		return entry != null && entry.getDeclaringClass() == cd;
 	}
 
 	private void checkFields() {
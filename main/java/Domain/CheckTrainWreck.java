@@ -1,16 +1,17 @@
 package Domain;
 
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import DataSource.ClassData;
-import DataSource.InstructionData;
+import DataSource.InstructionStream;
 import DataSource.InstructionType;
-import DataSource.MethodCallInstruction;
 import DataSource.MethodData;
-import DataSource.VarInstruction;
+import DataSource.ModelFacet;
 
 /**
  * @author Qingyuan Jiao
@@ -30,21 +31,24 @@ import DataSource.VarInstruction;
  * 4. It's not intelligent enough to tell if the class is a mere data structure of not. It records all train wrecks. 
  *      
  */
-public class CheckTrainWreck implements Check {
+public class CheckTrainWreck implements IncrementalCheck {
 
     public CheckTrainWreck() {
 
     }
 
     @Override
-    public List<Warning> check(ClassRegistry classRegistry) {
+    public Set<ModelFacet> getRequiredFacets() {
+        return EnumSet.of(ModelFacet.METHODS, ModelFacet.INSTRUCTIONS);
+    }
+
+    @Override
+    public List<Warning> checkClass(ClassRegistry classRegistry, ClassData classData) {
         List<Warning> warnings = new LinkedList<>();
 
-        for(ClassData classData : classRegistry.getAllClasses()) {
-            List<MethodData> methods = classData.getMethods();
-            for (MethodData methodData: methods) {
-                warnings.addAll(checkMethod(classRegistry, classData.getName(), classData.getUserFriendlyClassName(), methodData));
-            }
+        List<MethodData> methods = classData.getMethods();
+        for (MethodData methodData: methods) {
+            warnings.addAll(checkMethod(classRegistry, classData.getName(), classData.getUserFriendlyClassName(), methodData));
         }
 
         return warnings;
@@ -60,22 +64,24 @@ public class CheckTrainWreck implements Check {
      */
     private List<Warning> checkMethod(ClassRegistry classRegistry, String className, String userFClassName, MethodData methodData) {
         List<Warning> warnings = new LinkedList<>();
-        List<InstructionData> instList = methodData.getInstructions();
+        InstructionStream instructions = methodData.getInstructionStream();
+        //caller lookups count only method calls, variable instructions and constant loads
+        int[] instList = instructions.indicesOf(InstructionStream.CALL_VAR_CONST_TYPES);
         
-        for (int i = 0; i < instList.size(); i++) {
-            InstructionData currInst = instList.get(i);
-            if (currInst.getType() == InstructionType.METHOD_CALL) {
-                MethodCallInstruction methodCallInst = (MethodCallInstruction) currInst;
-                if (!methodCallInst.getMethodName().equals("<init>") && classInScope(classRegistry, methodCallInst.getMethodOwner())) {
-                    String methodOwner = methodCallInst.getMethodOwner();
-                    String methodName = methodCallInst.getMethodName();
-                    int paramCount = classRegistry.get(methodOwner).getMethodParamCount(methodName);
+        for (int i = 0; i < instList.length; i++) {
+            int currInst = instList[i];
+            if (instructions.getType(currInst) == InstructionType.METHOD_CALL) {
+                String methodOwner = instructions.getOwner(currInst);
+                String methodName = instructions.getMemberName(currInst);
+                if (!methodName.equals("<init>") && classInScope(classRegistry, methodOwner)) {
+                    MethodData calledMethod = classRegistry.get(methodOwner).getMethod(methodName, instructions.getMemberDescriptor(currInst));
+                    int paramCount = calledMethod == null ? -1 : calledMethod.getParamCount();
                     int callerIndex = i - paramCount - 1;
                     if (callerIndex < 0) continue;
-                    InstructionData loadCallerSlot = instList.get(callerIndex);
-                    if (loadCallerSlot.getType() == InstructionType.METHOD_CALL) {
-                        MethodCallInstruction callerInitSlot = (MethodCallInstruction) loadCallerSlot;
-                        if (callerInitSlot.getMethodName().equals("<init>") || callerInitSlot.getMethodName().equals("<clinit>")) {
+                    int loadCallerSlot = instList[callerIndex];
+                    if (instructions.getType(loadCallerSlot) == InstructionType.METHOD_CALL) {
+                        String callerMethodName = instructions.getMemberName(loadCallerSlot);
+                        if (callerMethodName.equals("<init>") || callerMethodName.equals("<clinit>")) {
                             //in form of (new A()).methodA();
                             continue;
                         } else {
@@ -85,10 +91,9 @@ public class CheckTrainWreck implements Check {
                             newWarning.setWarningText(text);
                             warnings.add(newWarning);
                         }
-                    } else if (loadCallerSlot.getType() == InstructionType.VAR_INS) {
-                        VarInstruction loadCallerInst = (VarInstruction) loadCallerSlot;
-                        int varIndex = loadCallerInst.getVar();
-                        if (!isVarInstantiated(varIndex, i, instList)) {
+                    } else if (instructions.getType(loadCallerSlot) == InstructionType.VAR_INS) {
+                        int varIndex = instructions.getVar(loadCallerSlot);
+                        if (!isVarInstantiated(varIndex, i, instructions, instList)) {
                             //caller is a variable declared in the method's body, not an argument
                             //AND caller object is derived from calling another method
                             WarningLocation location = new WarningLocation(userFClassName, methodData.getSignature());
@@ -121,28 +126,30 @@ public class CheckTrainWreck implements Check {
     /**
      * Checks whether an object variable is derived from instantiation or through return value of another method call. 
      * @param varIndex
-     * @param lineNo
-     * @param instList
-     * @return true if the object variable is instantiated. 
+     * @param lineNo position in instList
+     * @param instructions
+     * @param instList positions of the method calls, variable instructions and constant loads in instructions
+     * @return true if the object variable is instantiated (or assigned a constant). 
      */
-    private boolean isVarInstantiated(int varIndex, int lineNo, List<InstructionData> instList) {
+    private boolean isVarInstantiated(int varIndex, int lineNo, InstructionStream instructions, int[] instList) {
         for (int j = lineNo - 1; j >= 0; j--) { //loop back the find when was the caller was stored
-            InstructionData inst = instList.get(j);
-            if (inst.getType() == InstructionType.VAR_INS) {
-                VarInstruction varInst = (VarInstruction) inst;
-                if (varInst.getVar() == varIndex && varInst.getOpcodeType().equals("STORE")) {
-                    InstructionData prevInst = instList.get(j - 1);
-                    if (prevInst.getType() == InstructionType.VAR_INS) {
-                        VarInstruction prevAssignment = (VarInstruction) prevInst;
-                        int assignedVar = prevAssignment.getVar();
-                        return isVarInstantiated(assignedVar, j, instList);
-                    } else {
-                        MethodCallInstruction methodCallInst = (MethodCallInstruction) prevInst;
-                        if (methodCallInst.getMethodName().equals("<init>") || methodCallInst.getMethodName().equals("<clinit>")) {
+            int inst = instList[j];
+            if (instructions.getType(inst) == InstructionType.VAR_INS) {
+                if (instructions.getVar(inst) == varIndex && instructions.isStore(inst)) {
+                    if (j == 0) return true;
+                    int prevInst = instList[j - 1];
+                    if (instructions.getType(prevInst) == InstructionType.VAR_INS) {
+                        int assignedVar = instructions.getVar(prevInst);
+                        return isVarInstantiated(assignedVar, j, instructions, instList);
+                    } else if (instructions.isMethodCall(prevInst)) {
+                        String methodName = instructions.getMemberName(prevInst);
+                        if (methodName.equals("<init>") || methodName.equals("<clinit>")) {
                             return true;
                         } else {
                             return false;
                         }
+                    } else {
+                        return true;
                     }
                 }
             }
@@ -151,4 +158,4 @@ public class CheckTrainWreck implements Check {
         return true;
     }
 
-} 
+}
@@ -1,18 +1,71 @@
 package Domain;
 
 import DataSource.ClassData;
+import DataSource.ClasspathTypeResolver;
+import DataSource.InstructionStream;
+import DataSource.MethodBodySpill;
+import DataSource.MethodData;
+import DataSource.SymbolTable;
+import DataSource.VariableData;
 
 import java.util.*;
 
+/**
+ * The classes being linted, partitioned into modules (one per input directory or archive,
+ * or a single DEFAULT_MODULE) with a global lookup layer on top. Lookups by name go
+ * through the global layer, where the first module containing a class wins, while each
+ * module keeps its own copy of a class that other modules define as well.
+ */
 public class ClassRegistry {
 
+    public static final String DEFAULT_MODULE = "";
+
     private Map<String, ClassData> classMap;
+    private Map<String, Map<String, ClassData>> modules;
+    // class name -> the module of the class in classMap
+    private Map<String, String> moduleOfClass;
+
+    // type name -> the registry classes that directly extend or implement it, and only implement it
+    private Map<String, List<ClassData>> subtypes;
+    private Map<String, List<ClassData>> implementors;
+
+    // built on first use, see ensureDependencyIndex
+    private volatile Map<String, Set<String>> dependencies;
+    private Map<String, Set<String>> dependents;
+    private Set<String> affectedClasses;
+
+    private Map<String, ClassData> typeStubs = new HashMap<>();
+    private ClasspathTypeResolver typeResolver;
+    // built on first use and dropped whenever a type changes
+    private volatile TypeHierarchy typeHierarchy;
 
     public ClassRegistry(List<ClassData> classes) {
+        this(Collections.singletonMap(DEFAULT_MODULE, classes));
+    }
+
+    /**
+     * @param classesByModule the classes of each module, in the order the modules were configured
+     */
+    public ClassRegistry(Map<String, List<ClassData>> classesByModule) {
         classMap = new HashMap<>();
+        modules = new LinkedHashMap<>();
+        moduleOfClass = new HashMap<>();
+
+        // the first of several classes with the same name wins, so the order of the inputs decides
+        for(Map.Entry<String, List<ClassData>> module : classesByModule.entrySet()) {
+            Map<String, ClassData> moduleClasses = modules.computeIfAbsent(module.getKey(), k -> new LinkedHashMap<>());
+            for(ClassData classData : module.getValue()) {
+                moduleClasses.putIfAbsent(classData.getName(), classData);
+                if(classMap.putIfAbsent(classData.getName(), classData) == null) {
+                    moduleOfClass.put(classData.getName(), module.getKey());
+                }
+            }
+        }
 
-        for(ClassData classData : classes) {
-            classMap.put(classData.getName(), classData);
+        subtypes = new HashMap<>();
+        implementors = new HashMap<>();
+        for(ClassData classData : getAllClasses()) {
+            addToSubtypeIndex(classData);
         }
     }
 
@@ -20,93 +73,461 @@ public class ClassRegistry {
         return classMap.get(className);
     }
 
+    /**
+     * Looks up JDK and library classes that are not in the registry, see getType.
+     */
+    public void setTypeResolver(ClasspathTypeResolver typeResolver) {
+        this.typeResolver = typeResolver;
+        typeHierarchy = null;
+    }
+
+    /**
+     * Like get, but falls back to the type stubs and then to the classpath for classes
+     * outside the registry. Those are header-only, see ClassData.isHeaderOnly.
+     */
+    public ClassData getType(String className) {
+        ClassData classData = classMap.get(className);
+        if(classData == null) {
+            classData = typeStubs.get(className);
+        }
+        if(classData == null && typeResolver != null) {
+            classData = typeResolver.resolve(className);
+        }
+        return classData;
+    }
+
+    /**
+     * Adds header-only classes that were not linted, keeping only those that registry classes
+     * extend or implement, directly or through other stubs.
+     */
+    public void addTypeStubs(Collection<ClassData> stubs) {
+        Map<String, ClassData> stubsByName = new HashMap<>();
+        for(ClassData stub : stubs) {
+            stubsByName.put(stub.getName(), stub);
+        }
+
+        Deque<ClassData> queue = new ArrayDeque<>(getAllClasses());
+        while(!queue.isEmpty()) {
+            ClassData classData = queue.remove();
+            List<String> supertypes = new ArrayList<>(classData.getInterfaces());
+            supertypes.add(classData.getSuperClassName());
+            for(String supertype : supertypes) {
+                ClassData stub = stubsByName.remove(supertype);
+                if(stub != null) {
+                    typeHierarchy = null;
+                    typeStubs.put(supertype, stub);
+                    queue.add(stub);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds or replaces a single header-only class, see addTypeStubs.
+     */
+    public void putTypeStub(ClassData stub) {
+        markAffected(stub.getName());
+        typeStubs.put(stub.getName(), stub);
+        typeHierarchy = null;
+    }
+
     public Collection<ClassData> getAllClasses() {
         return classMap.values();
     }
 
-    public List<ClassData> getAncestors(String className) {
-        List<ClassData> ancestors = new LinkedList<>();
-        ClassData classData = get(className);
-        if(classData == null) {
-            return ancestors;
+    public Set<String> getModules() {
+        return Collections.unmodifiableSet(modules.keySet());
+    }
+
+    /**
+     * The classes of one module, including those that an earlier module defines as well.
+     */
+    public Collection<ClassData> getModuleClasses(String module) {
+        Map<String, ClassData> moduleClasses = modules.get(module);
+        return moduleClasses == null ? Collections.emptyList() : Collections.unmodifiableCollection(moduleClasses.values());
+    }
+
+    /**
+     * The module of the class that get returns for the name, or null if it is not in the registry.
+     */
+    public String getModule(String className) {
+        return moduleOfClass.get(className);
+    }
+
+    /**
+     * The other modules that classes of the given module refer to, see getDependencies.
+     * References are followed through the global lookup layer.
+     */
+    public Set<String> getModuleDependencies(String module) {
+        Set<String> moduleDependencies = new LinkedHashSet<>();
+        for(ClassData classData : getModuleClasses(module)) {
+            for(String dependency : getDependencies(classData.getName())) {
+                String dependencyModule = moduleOfClass.get(dependency);
+                if(dependencyModule != null && !dependencyModule.equals(module)) {
+                    moduleDependencies.add(dependencyModule);
+                }
+            }
         }
+        return moduleDependencies;
+    }
 
-        ancestors.add(classData);
-        for(String interfaceStr : classData.getInterfaces()) {
-            ancestors.add(get(interfaceStr));
+    /**
+     * Adds a class, replacing any class with the same name.
+     */
+    public void put(ClassData classData) {
+        String className = classData.getName();
+        markAffected(className);
+        removeFromDependencyIndex(className);
+        removeFromSubtypeIndex(classMap.get(className));
+        classMap.put(className, classData);
+        putInModule(className, classData);
+        addToSubtypeIndex(classData);
+        typeHierarchy = null;
+        addToDependencyIndex(classData);
+        markAffected(className);
+    }
+
+    public void remove(String className) {
+        markAffected(className);
+        removeFromDependencyIndex(className);
+        removeFromSubtypeIndex(classMap.remove(className));
+        typeStubs.remove(className);
+        typeHierarchy = null;
+        String module = moduleOfClass.remove(className);
+        if(module != null) {
+            modules.get(module).remove(className);
+        }
+    }
+
+    // a class put in later replaces the one of the same name in its module, or else goes to the first module
+    private void putInModule(String className, ClassData classData) {
+        String module = moduleOfClass.get(className);
+        if(module == null) {
+            module = modules.keySet().iterator().next();
+            moduleOfClass.put(className, module);
         }
-        ClassData cd = get(classData.getSuperClassName());
-        while(cd != null) {
+        modules.get(module).put(className, classData);
+    }
+
+    /**
+     * Returns the classes affected by every put and remove since the last call and starts over.
+     * See getAffectedClasses.
+     */
+    public Set<String> takeAffectedClasses() {
+        ensureDependencyIndex();
+        Set<String> taken = affectedClasses;
+        affectedClasses = new HashSet<>();
+        return taken;
+    }
 
-            ancestors.add(cd);
+    /**
+     * The classes (in the registry or not) that the given class refers to as a supertype,
+     * field, parameter, return or local variable type, or as the owner of a called method
+     * or accessed field.
+     */
+    public Set<String> getDependencies(String className) {
+        ensureDependencyIndex();
+        return dependencies.getOrDefault(className, Collections.emptySet());
+    }
+
+    /**
+     * The classes in the registry that refer to the given class, see getDependencies.
+     */
+    public Set<String> getDependents(String className) {
+        ensureDependencyIndex();
+        return dependents.getOrDefault(className, Collections.emptySet());
+    }
 
-            for(String interfaceStr : cd.getInterfaces()) {
-                ancestors.add(get(interfaceStr));
+    /**
+     * The classes whose warnings can change when the given classes change: the classes
+     * themselves and all of their subtypes and supertypes, plus every registry class these
+     * subtypes refer to or are referred to by. Checks look at most one reference away from the
+     * class they report on, apart from walking up the supertypes and down the subtypes
+     * (like CheckDecoratorPattern does), which is why both are followed all the way.
+     */
+    public Set<String> getAffectedClasses(Collection<String> changedClasses) {
+        ensureDependencyIndex();
+        Set<String> subtypes = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>(changedClasses);
+        while(!queue.isEmpty()) {
+            String className = queue.remove();
+            if(!subtypes.add(className)) {
+                continue;
             }
+            for(String dependent : getDependents(className)) {
+                ClassData cd = get(dependent);
+                if(className.equals(cd.getSuperClassName()) || cd.getInterfaces().contains(className)) {
+                    queue.add(dependent);
+                }
+            }
+        }
 
-            if(cd.getSuperClassName().equals("java.lang.Object")) {
-                break;
+        Set<String> affected = new HashSet<>(subtypes);
+        for(String className : changedClasses) {
+            for(ClassData ancestor : getAncestors(className)) {
+                if(classMap.containsKey(ancestor.getName())) {
+                    affected.add(ancestor.getName());
+                }
             }
+        }
+        for(String className : subtypes) {
+            affected.addAll(getDependents(className));
+            for(String dependency : getDependencies(className)) {
+                if(classMap.containsKey(dependency)) {
+                    affected.add(dependency);
+                }
+            }
+        }
+        return affected;
+    }
 
-            ClassData parent = get(cd.getSuperClassName());
-            cd = parent;
+    // may be reached from checks running on several modules at once, see CheckManager
+    private void ensureDependencyIndex() {
+        if(dependencies != null) {
+            return;
         }
+        synchronized(this) {
+            if(dependencies != null) {
+                return;
+            }
+            dependents = new HashMap<>();
+            affectedClasses = new HashSet<>();
+            Map<String, Set<String>> index = new HashMap<>();
+            for(ClassData classData : getAllClasses()) {
+                addToDependencyIndex(index, classData);
+            }
+            dependencies = index;
+        }
+    }
 
-        return ancestors;
+    // looked at both before and after a change, so that old and new references are covered
+    private void markAffected(String className) {
+        ensureDependencyIndex();
+        affectedClasses.addAll(getAffectedClasses(Collections.singleton(className)));
     }
 
-    public boolean classIsA(String className, String isA) {
+    private void addToDependencyIndex(ClassData classData) {
+        addToDependencyIndex(dependencies, classData);
+    }
+
+    private void addToDependencyIndex(Map<String, Set<String>> index, ClassData classData) {
+        String className = classData.getName();
+        Set<String> references = collectDependencies(classData);
+        index.put(className, references);
+        for(String reference : references) {
+            dependents.computeIfAbsent(reference, k -> new HashSet<>()).add(className);
+        }
+    }
+
+    private void removeFromDependencyIndex(String className) {
+        Set<String> references = dependencies.remove(className);
+        if(references == null) {
+            return;
+        }
+        for(String reference : references) {
+            Set<String> referencedBy = dependents.get(reference);
+            referencedBy.remove(className);
+            if(referencedBy.isEmpty()) {
+                dependents.remove(reference);
+            }
+        }
+    }
+
+    private static Set<String> collectDependencies(ClassData classData) {
+        Set<String> references = new HashSet<>();
+        if(classData.getSuperClassName() != null) {
+            references.add(classData.getSuperClassName());
+        }
+        references.addAll(classData.getInterfaces());
+        for(VariableData field : classData.getFieldVariables()) {
+            for(String type : field.getDataTypes()) {
+                addTypeName(references, type);
+            }
+        }
 
-        List<ClassData> ancestors = getAncestors(className);
+        SymbolTable symbols = SymbolTable.global();
+        for(MethodData methodData : classData.getMethods()) {
+            for(String param : methodData.getParams()) {
+                addTypeName(references, param);
+            }
+            addTypeName(references, methodData.getReturnType());
+            // lazily parsed or spilled bodies are read without being kept decoded
+            MethodData body = methodData.getDetachedBody();
+            // local variable types are descriptors
+            for(VariableData local : body.getLocalVariables()) {
+                addTypeName(references, symbols.getTypeName(local.getDataType()));
+            }
+            InstructionStream instructions = body.getInstructionStream();
+            for(int i = 0; i < instructions.size(); i++) {
+                if(instructions.hasOwner(i)) {
+                    addTypeName(references, instructions.getOwner(i));
+                }
+            }
+        }
 
-        for(ClassData ancestor : ancestors) {
+        references.remove(classData.getName());
+        return references;
+    }
 
-            if(ancestor.getName().equals(isA) || ancestor.getInterfaces().contains(isA)) {
-                return true;
+    private static void addTypeName(Set<String> references, String typeName) {
+        while(typeName.endsWith("[]")) {
+            typeName = typeName.substring(0, typeName.length() - 2);
+        }
+        references.add(typeName);
+    }
+
+    /**
+     * Drops decoded method bodies of lazily parsed classes, see MethodData.releaseBody.
+     */
+    public void releaseMethodBodies() {
+        for(ClassData classData : getAllClasses()) {
+            for(MethodData methodData : classData.getMethods()) {
+                methodData.releaseBody();
             }
+        }
+    }
+
+    /**
+     * Drops the symbols that neither a class in the registry nor one of otherClasses refers to
+     * any more, see SymbolTable.compact. otherClasses are classes kept outside the registry that
+     * may be put back later. Only call this while no check is running.
+     */
+    public void compactSymbols(Collection<ClassData> otherClasses) {
+        BitSet liveIds = new BitSet();
+        for(ClassData classData : getLiveClasses(otherClasses)) {
+            for(MethodData methodData : classData.getMethods()) {
+                methodData.collectSymbolIds(liveIds);
+            }
+        }
+        SymbolTable.global().compact(liveIds);
+    }
+
+    /**
+     * Drops the spilled bodies of classes that are neither in the registry nor one of otherClasses,
+     * see MethodBodySpill.compact and compactSymbols. Only call this while no check is running.
+     */
+    public void compactMethodBodySpill(MethodBodySpill methodBodySpill, Collection<ClassData> otherClasses) {
+        methodBodySpill.compact(getLiveClasses(otherClasses));
+    }
 
+    private Set<ClassData> getLiveClasses(Collection<ClassData> otherClasses) {
+        Set<ClassData> liveClasses = Collections.newSetFromMap(new IdentityHashMap<>());
+        for(String module : modules.keySet()) {
+            liveClasses.addAll(getModuleClasses(module));
         }
+        liveClasses.addAll(otherClasses);
+        return liveClasses;
+    }
 
-        return false;
+    /**
+     * The class and all of its supertypes that can be found, see getType. Worked out once per
+     * class, see TypeHierarchy. The list is shared, do not modify it.
+     */
+    public List<ClassData> getAncestors(String className) {
+        return getTypeHierarchy().getAncestors(className);
+    }
 
+    /**
+     * Whether the class is isA or extends or implements it, directly or indirectly.
+     */
+    public boolean classIsA(String className, String isA) {
+        return getTypeHierarchy().isA(className, isA);
     }
 
+    /**
+     * The methods the class declares and inherits, each with the class that provides it.
+     * Worked out once per class from the tables of its supertypes, see MethodTable.
+     * Empty if the class cannot be found.
+     */
+    public MethodTable getMethodTable(String className) {
+        return getTypeHierarchy().getMethodTable(className);
+    }
+
+    private TypeHierarchy getTypeHierarchy() {
+        TypeHierarchy hierarchy = typeHierarchy;
+        if(hierarchy == null) {
+            synchronized(this) {
+                if(typeHierarchy == null) {
+                    typeHierarchy = new TypeHierarchy(this::getType);
+                }
+                hierarchy = typeHierarchy;
+            }
+        }
+        return hierarchy;
+    }
+
+    /**
+     * All registry classes that extend or implement the given class, directly or indirectly.
+     */
     public List<ClassData> getChildren(String className) {
         List<ClassData> children = new LinkedList<>();
-        ClassData classData = get(className);
-        if(classData == null) {
+        if(get(className) == null) {
             return children;
         }
 
         Set<String> visited = new HashSet<>();
-        Queue<ClassData> queue = new LinkedList<>();
-        visited.add(classData.getName());
-        queue.add(classData);
+        Queue<String> queue = new LinkedList<>();
+        visited.add(className);
+        queue.add(className);
 
         while(!queue.isEmpty()) {
-            ClassData cd = queue.remove();
-            List<ClassData> subclasses = getSubclasses(cd.getName());
-            for(ClassData sub : subclasses) {
-                if(!visited.contains(sub.getName())) {
-                    visited.add(sub.getName());
-                    queue.add(sub);
+            for(ClassData sub : subtypes.getOrDefault(queue.remove(), Collections.emptyList())) {
+                if(visited.add(sub.getName())) {
+                    queue.add(sub.getName());
+                    children.add(sub);
                 }
             }
-            if(!cd.getName().equals(className)) children.add(cd);
         }
 
         return children;
     }
 
+    /**
+     * The registry classes that directly extend or implement the given class.
+     */
     public List<ClassData> getSubclasses(String className) {
-        List<ClassData> subclasses = new LinkedList<>();
-        for(ClassData cd : getAllClasses()) {
-            if(cd.getSuperClassName().equals(className) || cd.getInterfaces().contains(className)) {
-                subclasses.add(cd);
-            }
+        return new LinkedList<>(subtypes.getOrDefault(className, Collections.emptyList()));
+    }
+
+    /**
+     * The registry classes that list the given interface among their own interfaces.
+     */
+    public List<ClassData> getImplementors(String interfaceName) {
+        return new LinkedList<>(implementors.getOrDefault(interfaceName, Collections.emptyList()));
+    }
+
+    private void addToSubtypeIndex(ClassData classData) {
+        if(classData.getSuperClassName() != null) {
+            subtypes.computeIfAbsent(classData.getSuperClassName(), k -> new ArrayList<>()).add(classData);
+        }
+        for(String interfaceName : classData.getInterfaces()) {
+            subtypes.computeIfAbsent(interfaceName, k -> new ArrayList<>()).add(classData);
+            implementors.computeIfAbsent(interfaceName, k -> new ArrayList<>()).add(classData);
         }
+    }
 
-        return subclasses;
+    private void removeFromSubtypeIndex(ClassData classData) {
+        if(classData == null) {
+            return;
+        }
+        if(classData.getSuperClassName() != null) {
+            removeFromIndex(subtypes, classData.getSuperClassName(), classData);
+        }
+        for(String interfaceName : classData.getInterfaces()) {
+            removeFromIndex(subtypes, interfaceName, classData);
+            removeFromIndex(implementors, interfaceName, classData);
+        }
+    }
+
+    private static void removeFromIndex(Map<String, List<ClassData>> index, String typeName, ClassData classData) {
+        List<ClassData> classes = index.get(typeName);
+        if(classes == null) {
+            return;
+        }
+        classes.remove(classData);
+        if(classes.isEmpty()) {
+            index.remove(typeName);
+        }
     }
 
 }
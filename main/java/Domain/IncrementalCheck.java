@@ -0,0 +1,44 @@
+package Domain;
+
+import DataSource.ClassData;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A check whose warnings can be worked out one class at a time, so that after a change
+ * CheckManager only checks the affected classes again (see ClassRegistry.getAffectedClasses)
+ * and keeps the earlier warnings of all the others.
+ * Any class can still be looked up in the registry while checking.
+ */
+public interface IncrementalCheck extends Check {
+
+    /**
+     * Returns every warning found by looking at this class, including warnings located in other classes.
+     */
+    List<Warning> checkClass(ClassRegistry classRegistry, ClassData classData);
+
+    /**
+     * Returns the warnings of each given class by class name, in the order of the classes.
+     */
+    default Map<String, List<Warning>> checkClasses(ClassRegistry classRegistry, Collection<ClassData> classesToCheck) {
+        Map<String, List<Warning>> warningsByClass = new LinkedHashMap<>();
+        for (ClassData classData : classesToCheck) {
+            warningsByClass.put(classData.getName(), checkClass(classRegistry, classData));
+        }
+        return warningsByClass;
+    }
+
+    @Override
+    default List<Warning> check(ClassRegistry classRegistry) {
+        List<Warning> warnings = new LinkedList<>();
+        for (List<Warning> classWarnings : checkClasses(classRegistry, classRegistry.getAllClasses()).values()) {
+            warnings.addAll(classWarnings);
+        }
+        return warnings;
+    }
+
+}
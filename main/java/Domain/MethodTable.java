@@ -0,0 +1,90 @@
+package Domain;
+
+import DataSource.ClassData;
+import DataSource.MethodData;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The methods of a class once inheritance is resolved: those it declares and those it inherits,
+ * keyed by MethodData.getKey, each with the class that provides it. Get one from
+ * ClassRegistry.getMethodTable; tables are worked out once per class and shared.
+ *
+ * Superclass methods win over interface methods, and among interfaces the first one listed wins.
+ * Constructors, static initializers, private methods and static interface methods are not inherited.
+ */
+public class MethodTable {
+
+    static final MethodTable EMPTY = new MethodTable(Collections.emptyMap());
+
+    public enum Resolution {
+        /** Declared by the class, and not by any supertype. */
+        DECLARED,
+        /** Declared by the class, replacing a method of a superclass, or of a superinterface for an interface. */
+        OVERRIDES,
+        /** Declared by a class, replacing a method of one of its interfaces. */
+        IMPLEMENTS,
+        /** Not declared by the class, provided by one of its supertypes. */
+        INHERITED
+    }
+
+    private final Map<String, Entry> entries;
+
+    MethodTable(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * The method with the given key, or null if the class neither declares nor inherits it.
+     */
+    public Entry get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * All entries, the declared methods first in declaration order.
+     */
+    public Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    public static class Entry {
+
+        private final MethodData method;
+        private final ClassData declaringClass;
+        private final Resolution resolution;
+        private final Entry replaced;
+
+        Entry(MethodData method, ClassData declaringClass, Resolution resolution, Entry replaced) {
+            this.method = method;
+            this.declaringClass = declaringClass;
+            this.resolution = resolution;
+            this.replaced = replaced;
+        }
+
+        public MethodData getMethod() {
+            return method;
+        }
+
+        /**
+         * The class that declares the method, which is the table's own class unless it is inherited.
+         */
+        public ClassData getDeclaringClass() {
+            return declaringClass;
+        }
+
+        public Resolution getResolution() {
+            return resolution;
+        }
+
+        /**
+         * The supertype entry this method overrides or implements, null otherwise.
+         */
+        public Entry getReplaced() {
+            return replaced;
+        }
+    }
+
+}
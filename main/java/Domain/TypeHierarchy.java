@@ -0,0 +1,222 @@
+package Domain;
+
+import DataSource.AccessModifiers;
+import DataSource.ClassData;
+import DataSource.ClassType;
+import DataSource.MethodData;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The transitive supertypes of every type looked up so far, for ClassRegistry.classIsA and
+ * getAncestors. Each type name gets a dense id the first time it is seen, and each type keeps
+ * the ids of all of its supertypes (itself included) as a bitset, so a subtype test is a
+ * single bit lookup once the type has been looked up.
+ *
+ * The method table of a type (see MethodTable) is built on first use from the tables of its
+ * supertypes, in the same way.
+ *
+ * Types are resolved through a lookup function and worked out once, supertypes first.
+ * Looking up new types is serialized; looking up known ones takes no lock, so the index can
+ * be shared by checks running on several threads.
+ */
+class TypeHierarchy {
+
+    private static final Node UNRESOLVED = new Node(-1, null, new BitSet(), Collections.emptyList());
+
+    private final Function<String, ClassData> lookup;
+    private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+    private final Map<String, MethodTable> methodTables = new ConcurrentHashMap<>();
+    private int nextId;
+
+    /**
+     * @param lookup finds a class by name, or returns null if it is unknown
+     */
+    TypeHierarchy(Function<String, ClassData> lookup) {
+        this.lookup = lookup;
+    }
+
+    /**
+     * Whether the class is the given type or extends or implements it, directly or indirectly.
+     * False if the class itself cannot be found; supertypes that cannot be found still count,
+     * but their own supertypes are unknown.
+     */
+    boolean isA(String className, String typeName) {
+        Node node = getNode(className);
+        if(node.classData == null) {
+            return false;
+        }
+        Node type = nodes.get(typeName);
+        return type != null && node.ancestors.get(type.id);
+    }
+
+    /**
+     * The class and every supertype that can be found, without duplicates: the class first,
+     * then the supertypes of each of its interfaces and its superclass in turn.
+     * The list is shared, do not modify it.
+     */
+    List<ClassData> getAncestors(String className) {
+        return getNode(className).ancestorList;
+    }
+
+    private Node getNode(String className) {
+        if(className == null) {
+            return UNRESOLVED;
+        }
+        Node node = nodes.get(className);
+        if(node != null) {
+            return node;
+        }
+        synchronized(this) {
+            return computeNode(className, new HashSet<>());
+        }
+    }
+
+    private Node computeNode(String className, Set<String> inProgress) {
+        Node node = nodes.get(className);
+        if(node != null) {
+            return node;
+        }
+        // only a broken class path can make a class its own supertype
+        if(!inProgress.add(className)) {
+            return UNRESOLVED;
+        }
+
+        ClassData classData = lookup.apply(className);
+        BitSet ancestors = new BitSet();
+        List<ClassData> ancestorList = new ArrayList<>();
+        if(classData != null) {
+            ancestorList.add(classData);
+            Set<String> listed = new HashSet<>();
+            listed.add(className);
+            List<String> supertypes = new ArrayList<>(classData.getInterfaces());
+            supertypes.add(classData.getSuperClassName());
+            for(String supertype : supertypes) {
+                if(supertype == null) {
+                    continue;
+                }
+                Node supertypeNode = computeNode(supertype, inProgress);
+                if(supertypeNode.id >= 0) {
+                    ancestors.set(supertypeNode.id);
+                }
+                ancestors.or(supertypeNode.ancestors);
+                for(ClassData ancestor : supertypeNode.ancestorList) {
+                    if(listed.add(ancestor.getName())) {
+                        ancestorList.add(ancestor);
+                    }
+                }
+            }
+        }
+        inProgress.remove(className);
+
+        int id = nextId++;
+        ancestors.set(id);
+        node = new Node(id, classData, ancestors, Collections.unmodifiableList(ancestorList));
+        nodes.put(className, node);
+        return node;
+    }
+
+    /**
+     * The resolved methods of the class; empty if the class cannot be found.
+     */
+    MethodTable getMethodTable(String className) {
+        if(className == null) {
+            return MethodTable.EMPTY;
+        }
+        MethodTable table = methodTables.get(className);
+        if(table != null) {
+            return table;
+        }
+        synchronized(this) {
+            return computeMethodTable(className, new HashSet<>());
+        }
+    }
+
+    private MethodTable computeMethodTable(String className, Set<String> inProgress) {
+        MethodTable table = methodTables.get(className);
+        if(table != null) {
+            return table;
+        }
+        ClassData classData = lookup.apply(className);
+        if(classData == null || !inProgress.add(className)) {
+            return MethodTable.EMPTY;
+        }
+
+        // superclass first, so that its methods win over those of the interfaces
+        Map<String, MethodTable.Entry> inherited = new LinkedHashMap<>();
+        List<String> supertypes = new ArrayList<>();
+        supertypes.add(classData.getSuperClassName());
+        supertypes.addAll(classData.getInterfaces());
+        for(String supertype : supertypes) {
+            if(supertype == null) {
+                continue;
+            }
+            for(MethodTable.Entry entry : computeMethodTable(supertype, inProgress).getEntries()) {
+                if(isInherited(entry)) {
+                    inherited.putIfAbsent(entry.getMethod().getKey(), entry);
+                }
+            }
+        }
+        inProgress.remove(className);
+
+        boolean isInterface = classData.getClassType() == ClassType.INTERFACE;
+        Map<String, MethodTable.Entry> entries = new LinkedHashMap<>();
+        for(MethodData method : classData.getMethods()) {
+            MethodTable.Entry replaced = method.isStatic() || method.getModifiers().contains(AccessModifiers.PRIVATE)
+                    ? null : inherited.get(method.getKey());
+            MethodTable.Resolution resolution;
+            if(replaced == null) {
+                resolution = MethodTable.Resolution.DECLARED;
+            } else if(isInterface || replaced.getDeclaringClass().getClassType() != ClassType.INTERFACE) {
+                resolution = MethodTable.Resolution.OVERRIDES;
+            } else {
+                resolution = MethodTable.Resolution.IMPLEMENTS;
+            }
+            entries.putIfAbsent(method.getKey(), new MethodTable.Entry(method, classData, resolution, replaced));
+        }
+        for(MethodTable.Entry entry : inherited.values()) {
+            if(!entries.containsKey(entry.getMethod().getKey())) {
+                entries.put(entry.getMethod().getKey(),
+                        new MethodTable.Entry(entry.getMethod(), entry.getDeclaringClass(), MethodTable.Resolution.INHERITED, null));
+            }
+        }
+
+        table = new MethodTable(entries);
+        methodTables.put(className, table);
+        return table;
+    }
+
+    private static boolean isInherited(MethodTable.Entry entry) {
+        MethodData method = entry.getMethod();
+        if(method.getName().equals("<init>") || method.getName().equals("<clinit>")
+                || method.getModifiers().contains(AccessModifiers.PRIVATE)) {
+            return false;
+        }
+        return !(method.isStatic() && entry.getDeclaringClass().getClassType() == ClassType.INTERFACE);
+    }
+
+    private static class Node {
+
+        private final int id;
+        private final ClassData classData;
+        private final BitSet ancestors;
+        private final List<ClassData> ancestorList;
+
+        Node(int id, ClassData classData, BitSet ancestors, List<ClassData> ancestorList) {
+            this.id = id;
+            this.classData = classData;
+            this.ancestors = ancestors;
+            this.ancestorList = ancestorList;
+        }
+    }
+
+}
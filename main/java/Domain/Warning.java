@@ -9,6 +9,7 @@ public class Warning {
 	private WarningType warningType;
     private List<WarningLocation> locations;
     private String warningText;
+    private String module;
 
     public Warning(List<WarningLocation> locations, WarningType type, String warningText) {
         this.locations = new LinkedList<>(locations);
@@ -38,6 +39,7 @@ public class Warning {
     
     public String generateFullWarning() {   
         String res = this.warningType.toString() + ": " + this.warningText;
+        if (this.module != null) res += " (in module " + this.module + ")";
         if (this.locations.size() == 0) return res + "\n";
         String locations = " at \n";
         for (WarningLocation fl: this.locations) {
@@ -51,6 +53,18 @@ public class Warning {
         this.warningText = text;
     }
 
+    /**
+     * Names the module the warning was found in, for a class that several modules define
+     * differently. Null, the default, for all other classes.
+     */
+    public void setModule(String module) {
+        this.module = module;
+    }
+
+    public String getModule() {
+        return module;
+    }
+
     public WarningType getWarningType() {
         return warningType;
     }
@@ -24,4 +24,5 @@ public enum WarningType {
 	METHOD_NAME_BAD_CAPITALIZATION,
 	DONT_REPEAT_YOURSELF,
 	DONT_REPEAT_YOURSELF_CROSS,
+	CONFLICTING_DUPLICATE_CLASS,
 }
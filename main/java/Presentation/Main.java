@@ -1,11 +1,17 @@
 package Presentation;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 
 import DataSource.*;
 import Domain.CheckManager;
 import Domain.ClassRegistry;
 import Domain.Warning;
+import Domain.WarningType;
 
 public class Main {
 
@@ -17,10 +23,17 @@ public class Main {
 	private static final String CONFIG_PATH = "./config.yaml";
 
 	public static void main(String[] args) {
+		PhaseTimer timer = new PhaseTimer();
 
 		try {
 
-			runLinter();
+			List<String> arguments = Arrays.asList(args);
+			int cdsArchive = arguments.indexOf("--create-cds-archive");
+			if(cdsArchive >= 0 && cdsArchive + 1 < arguments.size()) {
+				createCdsArchive(arguments.get(cdsArchive + 1));
+			} else {
+				runLinter(arguments.contains("--watch"), timer);
+			}
 
 		} catch (RuntimeException exception) {
 
@@ -32,25 +45,478 @@ public class Main {
 
 	}
 
-	private static void runLinter() {
+	private static void runLinter(boolean watch, PhaseTimer timer) {
 		ConfigParser configParser = new ConfigParser();
-		ClassParser classParser = new ClassParser();
 		CheckManager checkManager = new CheckManager();
 		Map<String, Object> config = configParser.parseConfig(CONFIG_PATH);
-		List<String> directories = (List<String>) config.get("directories");
+		timer.endPhase("config");
 
-		List<ClassData> classes = new ArrayList<>();
-		for(String directory : directories) {
-			classParser.recursivelyParseAllClassFilesInDirectory(directory, classes);
+		if(watch) {
+			watchAndLint(config, checkManager);
+			return;
 		}
 
-		ClassRegistry classRegistry = new ClassRegistry(classes);
+		MethodBodySpill methodBodySpill = createMethodBodySpill(config);
+		try {
+			lint(config, checkManager, methodBodySpill, timer);
+		} finally {
+			if(methodBodySpill != null) {
+				methodBodySpill.close();
+			}
+		}
 
-		List<Warning> warnings = checkManager.runAllChecks(classRegistry, config);
+		// timing: true reports how long startup and each phase took, to keep track of startup cost
+		if(Boolean.TRUE.equals(config.get("timing"))) {
+			System.out.println(timer.report());
+		}
+	}
+
+	private static void lint(Map<String, Object> config, CheckManager checkManager, MethodBodySpill methodBodySpill,
+							 PhaseTimer timer) {
+		Map<String, List<ClassData>> classesByModule;
+		ClassDeduplicator deduplicator = new ClassDeduplicator();
+		boolean modules = isModulesEnabled(config);
+		String snapshotToLoad = getSnapshotOption(config, "load");
+		if(snapshotToLoad != null) {
+			classesByModule = Collections.singletonMap(ClassRegistry.DEFAULT_MODULE, new ModelSnapshot().read(snapshotToLoad));
+		} else {
+			classesByModule = parseClasses(config, methodBodySpill, checkManager, deduplicator);
+			if(!modules) {
+				List<ClassData> classes = new ArrayList<>();
+				for(List<ClassData> directoryClasses : classesByModule.values()) {
+					classes.addAll(directoryClasses);
+				}
+				classesByModule = Collections.singletonMap(ClassRegistry.DEFAULT_MODULE, classes);
+			}
+		}
 
+		ClassRegistry classRegistry = createClassRegistry(classesByModule);
+		timer.endPhase("parse");
+
+		String snapshotToSave = getSnapshotOption(config, "save");
+		if(snapshotToSave != null) {
+			new ModelSnapshot().write(snapshotToSave, classRegistry.getAllClasses());
+		}
+
+		ClasspathTypeResolver typeResolver = createTypeResolver(config);
+		classRegistry.setTypeResolver(typeResolver);
+		try {
+			List<Warning> warnings = getConflictWarnings(deduplicator, modules);
+			// checks only read method bodies from one thread at a time while they are spilled
+			checkManager.setModuleThreads(methodBodySpill == null ? getModuleThreads(config) : 1);
+			warnings.addAll(checkManager.runAllChecks(classRegistry, config));
+			timer.endPhase("checks");
+			outputWarnings(warnings, config);
+			timer.endPhase("output");
+		} finally {
+			if(typeResolver != null) {
+				typeResolver.close();
+			}
+		}
+	}
+
+	/**
+	 * --create-cds-archive <file> lints once in a child JVM that dumps every class it loaded
+	 * (the linter, ASM, SnakeYAML and the JDK classes they use) into a dynamic CDS archive.
+	 * Starting the linter with -XX:SharedArchiveFile=<file> then maps those classes in
+	 * instead of loading and verifying them again, which is most of the startup time of a
+	 * short run. The archive only fits the JVM and classpath it was created with, and the JVM
+	 * only archives classes loaded from jars, not from class directories.
+	 */
+	private static void createCdsArchive(String archive) {
+		String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+		List<String> command = Arrays.asList(java, "-XX:ArchiveClassesAtExit=" + archive,
+				"-cp", System.getProperty("java.class.path"), Main.class.getName());
+		try {
+			int exitCode = new ProcessBuilder(command).inheritIO().start().waitFor();
+			if(exitCode != 0 || !Files.isRegularFile(Paths.get(archive))) {
+				throw new RuntimeException("Failed to create CDS archive " + archive + ", exit code " + exitCode);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to start " + java, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		System.out.format("\nCreated CDS archive %s, start the linter with -XX:SharedArchiveFile=%s to use it\n", archive, archive);
+	}
+
+	private static void outputWarnings(List<Warning> warnings, Map<String, Object> config) {
 		for(WarningOutputStrategy warningOutput : OUTPUTS) {
 			warningOutput.outputWarnings(warnings, config);
 		}
 	}
 
+	/**
+	 * --watch keeps the parsed classes in memory and lints again every time class files under
+	 * the configured directories are created, modified or deleted. Only the changed class files
+	 * (or archives) are parsed again, and only the classes affected by them are checked again.
+	 * Symbols and spilled bodies of replaced classes are dropped from time to time, see
+	 * SymbolTable.compact and MethodBodySpill.compact. Runs until the process is stopped.
+	 */
+	private static void watchAndLint(Map<String, Object> config, CheckManager checkManager) {
+		ClassParser classParser = createClassParser(config);
+		classParser.setFacets(checkManager.getRequiredFacets(config));
+		String cacheDirectory = getParserCacheDirectory(config);
+		if(cacheDirectory != null) {
+			classParser.setParseCache(new ParseCache(cacheDirectory));
+		}
+		ClassFileFinder classFileFinder = createClassFileFinder(config);
+		classParser.setClassFileFinder(classFileFinder);
+		FileManifest fileManifest = createFileManifest(config);
+		classParser.setFileManifest(fileManifest);
+		classParser.setPackageFilter(createPackageFilter(config));
+		List<String> directories = (List<String>) config.get("directories");
+
+		ClassSources classSources = new ClassSources();
+		ClasspathTypeResolver typeResolver = createTypeResolver(config);
+		MethodBodySpill methodBodySpill = createMethodBodySpill(config);
+		classParser.setMethodBodySpill(methodBodySpill);
+
+		// start watching before the first parse so that nothing written in between is missed
+		try (ClassFileWatcher watcher = new ClassFileWatcher(directories, classFileFinder)) {
+			List<ClassData> classes = new ArrayList<>();
+			for(Path source : ClassFileWatcher.listSources(directories, classFileFinder)) {
+				List<ClassData> parsed = parseSource(classParser, source);
+				classes.addAll(parsed);
+				classSources.put(source, parsed);
+			}
+			saveFileManifest(fileManifest);
+			ClassRegistry classRegistry = createClassRegistry(classes);
+			classRegistry.setTypeResolver(typeResolver);
+			outputWarnings(checkManager.runAllChecks(classRegistry, config), config);
+			saveTypeIndex(typeResolver);
+			// every parse adds symbols, so the table is compacted whenever it doubles from its first size
+			int symbolLimit = 2 * SymbolTable.global().size();
+			// likewise the spill file, which grows by the bodies of every class parsed again
+			long spillLimit = methodBodySpill == null ? 0 : 2 * methodBodySpill.size();
+
+			while(true) {
+				Set<Path> changedSources = watcher.awaitChanges();
+				long start = System.nanoTime();
+				for(Path source : changedSources) {
+					updateSource(classParser, classRegistry, classSources, source);
+				}
+				saveFileManifest(fileManifest);
+				outputWarnings(checkManager.runChecksAgain(classRegistry, config, classRegistry.takeAffectedClasses()), config);
+				saveTypeIndex(typeResolver);
+				if(SymbolTable.global().size() > symbolLimit) {
+					classRegistry.compactSymbols(classSources.getShadowedDefinitions());
+				}
+				if(methodBodySpill != null && methodBodySpill.size() > spillLimit) {
+					classRegistry.compactMethodBodySpill(methodBodySpill, classSources.getShadowedDefinitions());
+					spillLimit = Math.max(spillLimit, 2 * methodBodySpill.size());
+				}
+				System.out.format("\nLinted again after %d changed file(s) in %d ms, watching for changes...\n",
+						changedSources.size(), (System.nanoTime() - start) / 1_000_000);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to stop watching " + directories, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			if(typeResolver != null) {
+				typeResolver.close();
+			}
+			if(methodBodySpill != null) {
+				methodBodySpill.close();
+			}
+		}
+	}
+
+	private static void saveTypeIndex(ClasspathTypeResolver typeResolver) {
+		if(typeResolver != null) {
+			typeResolver.saveIndex();
+		}
+	}
+
+	/**
+	 * Replaces the classes parsed from a changed source. A source that no longer exists
+	 * was deleted, and if it was a directory every source below it is gone as well.
+	 * A class that another source defines too is not removed; the definition in use is
+	 * always the one of the first source, see ClassSources.
+	 */
+	private static void updateSource(ClassParser classParser, ClassRegistry classRegistry,
+									 ClassSources classSources, Path source) {
+		Set<String> classNames;
+		if(Files.exists(source)) {
+			classNames = classSources.put(source, parseSource(classParser, source));
+		} else {
+			classNames = classSources.remove(source);
+		}
+
+		for(String className : classNames) {
+			ClassData definition = classSources.getDefinition(className);
+			ClassData current = classRegistry.get(className);
+			if(definition == null) {
+				classRegistry.remove(className);
+			} else if(definition.isHeaderOnly()) {
+				if(current != null) {
+					classRegistry.remove(className);
+				}
+				classRegistry.putTypeStub(definition);
+			} else if(definition != current) {
+				classRegistry.put(definition);
+			}
+		}
+	}
+
+	private static List<ClassData> parseSource(ClassParser classParser, Path source) {
+		try {
+			return classParser.parseSource(source);
+		} catch (RuntimeException e) {
+			// most likely a class file the compiler has not finished writing; it is parsed again on its next change
+			System.err.format("Failed to parse class file, skipping: %s (%s)\n", source, e);
+			return new ArrayList<>();
+		}
+	}
+
+	/**
+	 * Header-only classes left out by packages.include/exclude are not linted, but are kept
+	 * as type stubs when linted classes extend or implement them.
+	 */
+	private static ClassRegistry createClassRegistry(List<ClassData> classes) {
+		return createClassRegistry(Collections.singletonMap(ClassRegistry.DEFAULT_MODULE, classes));
+	}
+
+	private static ClassRegistry createClassRegistry(Map<String, List<ClassData>> classesByModule) {
+		Map<String, List<ClassData>> lintedClasses = new LinkedHashMap<>();
+		List<ClassData> stubs = new ArrayList<>();
+		for(Map.Entry<String, List<ClassData>> module : classesByModule.entrySet()) {
+			List<ClassData> moduleClasses = new ArrayList<>();
+			for(ClassData classData : module.getValue()) {
+				if(classData.isHeaderOnly()) {
+					stubs.add(classData);
+				} else {
+					moduleClasses.add(classData);
+				}
+			}
+			lintedClasses.put(module.getKey(), moduleClasses);
+		}
+
+		ClassRegistry classRegistry = new ClassRegistry(lintedClasses);
+		classRegistry.addTypeStubs(stubs);
+		return classRegistry;
+	}
+
+	/**
+	 * A class that is found more than once, in different directories or archives, is parsed once
+	 * when the copies are identical. Copies that differ are reported, see getConflictWarnings.
+	 * Returns the classes of each configured directory, in the order of the directories.
+	 */
+	private static Map<String, List<ClassData>> parseClasses(Map<String, Object> config, MethodBodySpill methodBodySpill,
+												CheckManager checkManager, ClassDeduplicator deduplicator) {
+		ClassParser classParser = createClassParser(config);
+		classParser.setDeduplicator(deduplicator);
+		// a saved snapshot has to serve any set of checks, so it gets the whole model
+		if(getSnapshotOption(config, "save") == null) {
+			classParser.setFacets(checkManager.getRequiredFacets(config));
+		}
+		classParser.setMethodBodySpill(methodBodySpill);
+		String cacheDirectory = getParserCacheDirectory(config);
+		if(cacheDirectory != null) {
+			classParser.setParseCache(new ParseCache(cacheDirectory));
+		}
+		ClassFileFinder classFileFinder = createClassFileFinder(config);
+		classParser.setClassFileFinder(classFileFinder);
+		FileManifest fileManifest = createFileManifest(config);
+		classParser.setFileManifest(fileManifest);
+		classParser.setPackageFilter(createPackageFilter(config));
+		List<String> directories = (List<String>) config.get("directories");
+
+		Map<String, List<ClassData>> classes = new LinkedHashMap<>();
+		int threads = getParserThreads(config);
+		if(threads == 1) {
+			for(String directory : directories) {
+				classParser.parseAllClassFiles(directory, classes.computeIfAbsent(directory, k -> new ArrayList<>()));
+			}
+		} else {
+			ParallelClassParser parallelParser = new ParallelClassParser(classParser, threads);
+			try {
+				for(String directory : directories) {
+					parallelParser.parseAllClassFiles(directory, classes.computeIfAbsent(directory, k -> new ArrayList<>()));
+				}
+			} finally {
+				parallelParser.shutdown();
+			}
+		}
+		saveFileManifest(fileManifest);
+
+		return classes;
+	}
+
+	/**
+	 * Of the differing copies of a class only the first one found, in the order of the
+	 * configured directories, is linted (see ClassRegistry), unless every directory is a
+	 * module of its own.
+	 */
+	private static List<Warning> getConflictWarnings(ClassDeduplicator deduplicator, boolean modules) {
+		List<Warning> warnings = new ArrayList<>();
+		String linted = modules ? "each module lints its own copy" : "only the copy in the first configured directory is linted";
+		for(Map.Entry<String, List<String>> conflict : deduplicator.getConflicts().entrySet()) {
+			warnings.add(new Warning(WarningType.CONFLICTING_DUPLICATE_CLASS, String.format("%s differs between %s, %s",
+					conflict.getKey(), String.join(", ", conflict.getValue()), linted)));
+		}
+		return warnings;
+	}
+
+	/**
+	 * modules.enabled: true makes every configured directory (or archive) a module of its own.
+	 * Checks that work one class at a time then run on each module separately, on up to
+	 * modules.threads modules at once (1 by default); the other checks see all modules together,
+	 * where the first directory defining a class wins. See ClassRegistry and CheckManager.setModuleThreads.
+	 */
+	private static boolean isModulesEnabled(Map<String, Object> config) {
+		Map<String, Object> modulesConfig = (Map<String, Object>) config.get("modules");
+		return modulesConfig != null && Boolean.TRUE.equals(modulesConfig.get("enabled"));
+	}
+
+	private static int getModuleThreads(Map<String, Object> config) {
+		Map<String, Object> modulesConfig = (Map<String, Object>) config.get("modules");
+		if(modulesConfig == null || modulesConfig.get("threads") == null) {
+			return 1;
+		}
+
+		try {
+			return (int) modulesConfig.get("threads");
+		} catch (ClassCastException cce) {
+			throw new RuntimeException("modules.threads must be an integer");
+		}
+	}
+
+	/**
+	 * discovery.include and discovery.exclude are glob patterns matched against the path of a class file
+	 * relative to its configured directory. A directory matching an exclude pattern such as
+	 * "generated/**" is skipped as a whole.
+	 */
+	private static ClassFileFinder createClassFileFinder(Map<String, Object> config) {
+		Map<String, Object> discoveryConfig = (Map<String, Object>) config.get("discovery");
+		if(discoveryConfig == null) {
+			return new ClassFileFinder();
+		}
+		List<String> includes = (List<String>) discoveryConfig.getOrDefault("include", new ArrayList<>());
+		List<String> excludes = (List<String>) discoveryConfig.getOrDefault("exclude", new ArrayList<>());
+		return new ClassFileFinder(includes, excludes);
+	}
+
+	/**
+	 * packages.include and packages.exclude list packages (covering their subpackages) whose
+	 * classes are linted or left out. A class is matched on the name in its class file header,
+	 * so a class that is left out is never fully parsed.
+	 */
+	private static PackageFilter createPackageFilter(Map<String, Object> config) {
+		Map<String, Object> packagesConfig = (Map<String, Object>) config.get("packages");
+		if(packagesConfig == null) {
+			return null;
+		}
+		List<String> includes = (List<String>) packagesConfig.getOrDefault("include", new ArrayList<>());
+		List<String> excludes = (List<String>) packagesConfig.getOrDefault("exclude", new ArrayList<>());
+		return new PackageFilter(includes, excludes);
+	}
+
+	/**
+	 * discovery.manifest is a file that records the size, modification time and parse cache key of
+	 * every class file, so that unchanged class files are not read again. It needs parser.cache.
+	 */
+	private static FileManifest createFileManifest(Map<String, Object> config) {
+		Map<String, Object> discoveryConfig = (Map<String, Object>) config.get("discovery");
+		String manifest = discoveryConfig == null ? null : (String) discoveryConfig.get("manifest");
+		if(manifest == null || getParserCacheDirectory(config) == null) {
+			return null;
+		}
+		return new FileManifest(manifest);
+	}
+
+	private static void saveFileManifest(FileManifest fileManifest) {
+		if(fileManifest != null) {
+			fileManifest.save();
+		}
+	}
+
+	/**
+	 * spill.budget (in megabytes) turns on spilling of method bodies to a temporary file in
+	 * spill.directory (the system temp directory by default). Only about that much of the
+	 * spilled method bodies is paged back into memory at a time, see MethodBodySpill.
+	 */
+	private static MethodBodySpill createMethodBodySpill(Map<String, Object> config) {
+		Map<String, Object> spillConfig = (Map<String, Object>) config.get("spill");
+		if(spillConfig == null || spillConfig.get("budget") == null) {
+			return null;
+		}
+
+		long budget;
+		try {
+			budget = ((Number) spillConfig.get("budget")).longValue() * 1024 * 1024;
+		} catch (ClassCastException cce) {
+			throw new RuntimeException("spill.budget must be a number of megabytes");
+		}
+		return new MethodBodySpill((String) spillConfig.get("directory"), budget);
+	}
+
+	/**
+	 * snapshot.save writes the parsed model to a snapshot file after parsing,
+	 * snapshot.load reads the model from a snapshot file instead of parsing the directories.
+	 */
+	private static String getSnapshotOption(Map<String, Object> config, String option) {
+		Map<String, Object> snapshotConfig = (Map<String, Object>) config.get("snapshot");
+		return snapshotConfig == null ? null : (String) snapshotConfig.get(option);
+	}
+
+	/**
+	 * parser.mode selects how class files are read: "tree" (the default) builds an ASM ClassNode first,
+	 * "streaming" builds the model in one visitor pass without frames,
+	 * "lazy" streams only the class structure and decodes method bodies on first use.
+	 */
+	private static ClassParser createClassParser(Map<String, Object> config) {
+		Map<String, Object> parserConfig = (Map<String, Object>) config.get("parser");
+		String mode = parserConfig == null ? null : (String) parserConfig.get("mode");
+		if(mode == null || mode.equals("tree")) {
+			return new ClassParser();
+		} else if(mode.equals("streaming")) {
+			return new StreamingClassParser();
+		} else if(mode.equals("lazy")) {
+			return new StreamingClassParser(true);
+		}
+
+		throw new RuntimeException("Unknown parser mode: " + mode);
+	}
+
+	/**
+	 * classpath.entries lists directories, jars and "jrt" (the running JDK) where classes outside
+	 * the linted directories are looked up when a check walks up a type hierarchy.
+	 * classpath.index is a file that keeps what was looked up between runs.
+	 */
+	private static ClasspathTypeResolver createTypeResolver(Map<String, Object> config) {
+		Map<String, Object> classpathConfig = (Map<String, Object>) config.get("classpath");
+		if(classpathConfig == null || classpathConfig.get("entries") == null) {
+			return null;
+		}
+		return new ClasspathTypeResolver((List<String>) classpathConfig.get("entries"), (String) classpathConfig.get("index"));
+	}
+
+	/**
+	 * parser.cache points at a directory that keeps parsed classes between runs.
+	 */
+	private static String getParserCacheDirectory(Map<String, Object> config) {
+		Map<String, Object> parserConfig = (Map<String, Object>) config.get("parser");
+		return parserConfig == null ? null : (String) parserConfig.get("cache");
+	}
+
+	/**
+	 * Reads parser.threads from the config. 1 (the default) parses on the main thread,
+	 * 0 uses one worker per available processor.
+	 */
+	private static int getParserThreads(Map<String, Object> config) {
+		Map<String, Object> parserConfig = (Map<String, Object>) config.get("parser");
+		if(parserConfig == null || parserConfig.get("threads") == null) {
+			return 1;
+		}
+
+		try {
+			return (int) parserConfig.get("threads");
+		} catch (ClassCastException cce) {
+			throw new RuntimeException("parser.threads must be an integer");
+		}
+	}
+
 }
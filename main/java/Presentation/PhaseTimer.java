@@ -0,0 +1,43 @@
+package Presentation;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measures how long each phase of a run takes, starting from when the JVM was launched.
+ * The time before main is only looked up when the report is built, so that measuring
+ * does not slow down startup itself.
+ */
+class PhaseTimer {
+
+	private long mainStarted;
+	private long phaseStarted;
+	private Map<String, Long> phaseMillis;
+
+	PhaseTimer() {
+		this.mainStarted = System.nanoTime();
+		this.phaseStarted = this.mainStarted;
+		this.phaseMillis = new LinkedHashMap<>();
+	}
+
+	void endPhase(String phase) {
+		long now = System.nanoTime();
+		this.phaseMillis.put(phase, (now - this.phaseStarted) / 1_000_000);
+		this.phaseStarted = now;
+	}
+
+	String report() {
+		long sinceMain = (System.nanoTime() - this.mainStarted) / 1_000_000;
+		StringBuilder sb = new StringBuilder("Timing:");
+		// the management classes are only loaded now, after everything else has been measured
+		long sinceJvm = ManagementFactory.getRuntimeMXBean().getUptime();
+		sb.append(String.format(" jvm startup %d ms,", Math.max(0, sinceJvm - sinceMain)));
+		for (Map.Entry<String, Long> e : this.phaseMillis.entrySet()) {
+			sb.append(String.format(" %s %d ms,", e.getKey(), e.getValue()));
+		}
+		sb.append(String.format(" total since main %d ms", sinceMain));
+		return sb.toString();
+	}
+
+}